@@ -0,0 +1,85 @@
+package com.mindex.challenge.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.service.CompensationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CompensationService#findByEmployeeId} for an employee with a long salary history, both when the
+ * latest Compensation is cached and when every call has to go to the repository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompensationBenchmark {
+
+    @Param({"10", "1000"})
+    private int historyLength;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private ConfigurableApplicationContext context;
+
+    private CompensationService compensationService;
+
+    private Cache<?, ?> latestCompensationCache;
+
+    private String employeeId;
+
+    @Setup
+    public void setup() {
+        context = ApplicationContexts.start();
+        compensationService = context.getBean(CompensationService.class);
+        latestCompensationCache = context.getBean("latestCompensationCache", Cache.class);
+
+        Employee employee = new Employee();
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        employeeId = employee.getEmployeeId();
+
+        List<Compensation> history = new ArrayList<>(historyLength);
+        LocalDate effectiveDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < historyLength; i++) {
+            Compensation compensation = new Compensation();
+            compensation.setEmployee(employee);
+            compensation.setSalary(BigDecimal.valueOf(50000 + i * 100));
+            compensation.setEffectiveDate(effectiveDate.plusWeeks(i));
+            history.add(compensation);
+        }
+        context.getBean(CompensationRepository.class).insert(history);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Compensation findByEmployeeId() throws NotFoundException {
+        if (!cached) {
+            latestCompensationCache.invalidateAll();
+        }
+
+        return compensationService.findByEmployeeId(employeeId);
+    }
+}
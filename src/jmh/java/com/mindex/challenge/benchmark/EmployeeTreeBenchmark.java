@@ -0,0 +1,70 @@
+package com.mindex.challenge.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing large filled out Employee trees, like the ones in a reporting structure response, and
+ * comparing and hashing them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeTreeBenchmark {
+
+    @Param({"2:12", "5:5", "50:2"})
+    private String fanOutAndDepth;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private Employee tree;
+
+    private Employee equalTree;
+
+    @Setup
+    public void setup() {
+        String[] parameters = fanOutAndDepth.split(":");
+        int fanOut = Integer.parseInt(parameters[0]);
+        int depth = Integer.parseInt(parameters[1]);
+
+        tree = SyntheticOrg.buildTree(fanOut, depth);
+        equalTree = copy(tree);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tree);
+    }
+
+    @Benchmark
+    public boolean equalTrees() {
+        return tree.equals(equalTree);
+    }
+
+    @Benchmark
+    public int hashTree() {
+        return tree.hashCode();
+    }
+
+    private Employee copy(Employee employee) {
+        try {
+            return objectMapper.readValue(objectMapper.writeValueAsBytes(employee), Employee.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy employee tree", e);
+        }
+    }
+}
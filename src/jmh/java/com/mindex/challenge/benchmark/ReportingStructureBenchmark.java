@@ -0,0 +1,60 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EmployeeService#getReportingStructure} on wide, deep and balanced orgs, both with the org graph
+ * index and reading through the employee cache and repository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportingStructureBenchmark {
+
+    @Param({"WIDE", "DEEP", "BALANCED"})
+    private SyntheticOrg.Shape shape;
+
+    @Param({"true", "false"})
+    private boolean useOrgGraphIndex;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private String rootId;
+
+    @Setup
+    public void setup() {
+        context = ApplicationContexts.start("challenge.reporting-structure.use-org-graph-index=" + useOrgGraphIndex);
+        employeeService = context.getBean(EmployeeService.class);
+
+        SyntheticOrg org = new SyntheticOrg(shape);
+        context.getBean(EmployeeRepository.class).insert(org.getEmployees());
+        rootId = org.getRootId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReportingStructure getReportingStructure() throws NotFoundException {
+        return employeeService.getReportingStructure(rootId);
+    }
+}
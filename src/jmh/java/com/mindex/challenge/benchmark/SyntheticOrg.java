@@ -0,0 +1,114 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.data.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the org shapes the benchmarks run against. Every org is returned as the stored documents, with direct reports
+ * only referencing other Employees by employeeId, plus the employeeId of the Employee at the top.
+ */
+public class SyntheticOrg {
+    public enum Shape {
+        /**
+         * One manager with 2000 direct reports
+         */
+        WIDE,
+        /**
+         * A single chain of 1000 managers
+         */
+        DEEP,
+        /**
+         * Five reports under every manager, six levels deep
+         */
+        BALANCED
+    }
+
+    private final List<Employee> employees = new ArrayList<>();
+
+    private final String rootId;
+
+    SyntheticOrg(Shape shape) {
+        switch (shape) {
+            case WIDE:
+                rootId = build(2000, 1);
+                break;
+            case DEEP:
+                rootId = build(1, 1000);
+                break;
+            default:
+                rootId = build(5, 5);
+        }
+    }
+
+    List<Employee> getEmployees() {
+        return employees;
+    }
+
+    String getRootId() {
+        return rootId;
+    }
+
+    /**
+     * Builds a fully filled out tree of Employees, fanOut wide at every level and depth levels of reports deep
+     */
+    static Employee buildTree(int fanOut, int depth) {
+        Employee employee = employee();
+        if (depth > 0) {
+            List<Employee> directReports = new ArrayList<>(fanOut);
+            for (int i = 0; i < fanOut; i++) {
+                directReports.add(buildTree(fanOut, depth - 1));
+            }
+            employee.setDirectReports(directReports);
+        }
+
+        return employee;
+    }
+
+    /**
+     * Builds the subtree iteratively so a deep chain doesn't need a deep stack
+     */
+    private String build(int fanOut, int depth) {
+        Employee root = employee();
+        employees.add(root);
+
+        List<Employee> level = new ArrayList<>();
+        level.add(root);
+        for (int d = 0; d < depth; d++) {
+            List<Employee> nextLevel = new ArrayList<>(level.size() * fanOut);
+            for (Employee manager : level) {
+                List<Employee> directReports = new ArrayList<>(fanOut);
+                for (int i = 0; i < fanOut; i++) {
+                    Employee report = employee();
+                    employees.add(report);
+                    nextLevel.add(report);
+                    directReports.add(reference(report));
+                }
+                manager.setDirectReports(directReports);
+            }
+            level = nextLevel;
+        }
+
+        return root.getEmployeeId();
+    }
+
+    private static Employee employee() {
+        Employee employee = new Employee();
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        employee.setFirstName("Synthetic");
+        employee.setLastName("Employee");
+        employee.setPosition("Developer");
+        employee.setDepartment("Engineering");
+
+        return employee;
+    }
+
+    private static Employee reference(Employee employee) {
+        Employee reference = new Employee();
+        reference.setEmployeeId(employee.getEmployeeId());
+
+        return reference;
+    }
+}
@@ -0,0 +1,315 @@
+package com.mindex.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mindex.challenge.ChallengeApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts the application on a random port against a generated org, drives its REST endpoints from many concurrent
+ * clients, and reports the latency percentiles and throughput of each endpoint.
+ * <p>
+ * Each client loops through the endpoints in turn for the warmup period, then for the measured period, recording the
+ * latency of every request made while measuring. Reporting structures are requested for employees near the top of the
+ * org, which are the managers.
+ */
+public class LoadTest {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String NEW_EMPLOYEE = "{\"firstName\": \"Load\", \"lastName\": \"Test\", "
+            + "\"position\": \"Developer I\", \"department\": \"Engineering\"}";
+
+    enum Endpoint {
+        READ_EMPLOYEE("GET /employee/{id}"),
+        REPORTING_STRUCTURE("GET /employee/{id}/reportingStructure"),
+        LATEST_COMPENSATION("GET /employee/{id}/compensation"),
+        CREATE_EMPLOYEE("POST /employee");
+
+        private final String description;
+
+        Endpoint(String description) {
+            this.description = description;
+        }
+    }
+
+    private final String baseUrl;
+    private final List<String> employeeIds;
+    private final int managerCount;
+
+    LoadTest(String baseUrl, List<String> employeeIds) {
+        this.baseUrl = baseUrl;
+        this.employeeIds = employeeIds;
+        this.managerCount = Math.max(1, employeeIds.size() / 10);
+    }
+
+    /**
+     * Runs the load from the given number of clients
+     *
+     * @return the results for each endpoint
+     */
+    Map<String, EndpointResult> run(int clients, long warmupMillis, long durationMillis) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            long measureFrom = System.currentTimeMillis() + warmupMillis;
+            long measureUntil = measureFrom + durationMillis;
+
+            List<Future<Recorder[]>> futures = new ArrayList<>(clients);
+            for (int client = 0; client < clients; client++) {
+                futures.add(executor.submit(() -> runClient(measureFrom, measureUntil)));
+            }
+
+            Recorder[] totals = newRecorders();
+            for (Future<Recorder[]> future : futures) {
+                Recorder[] recorders = future.get();
+                for (Endpoint endpoint : Endpoint.values()) {
+                    totals[endpoint.ordinal()].addAll(recorders[endpoint.ordinal()]);
+                }
+            }
+
+            Map<String, EndpointResult> results = new LinkedHashMap<>();
+            for (Endpoint endpoint : Endpoint.values()) {
+                results.put(endpoint.description, totals[endpoint.ordinal()].toResult(durationMillis));
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Recorder[] runClient(long measureFrom, long measureUntil) {
+        Recorder[] recorders = newRecorders();
+        Endpoint[] endpoints = Endpoint.values();
+        for (int request = 0; ; request++) {
+            long now = System.currentTimeMillis();
+            if (now >= measureUntil) {
+                return recorders;
+            }
+
+            Endpoint endpoint = endpoints[request % endpoints.length];
+            long start = System.nanoTime();
+            boolean succeeded = send(endpoint);
+            long latency = System.nanoTime() - start;
+
+            if (now >= measureFrom) {
+                recorders[endpoint.ordinal()].record(latency, succeeded);
+            }
+        }
+    }
+
+    private boolean send(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String employeeId = employeeIds.get(random.nextInt(employeeIds.size()));
+        try {
+            switch (endpoint) {
+                case READ_EMPLOYEE:
+                    return request("GET", "/employee/" + employeeId, null);
+                case REPORTING_STRUCTURE:
+                    String managerId = employeeIds.get(random.nextInt(managerCount));
+                    return request("GET", "/employee/" + managerId + "/reportingStructure", null);
+                case LATEST_COMPENSATION:
+                    return request("GET", "/employee/" + employeeId + "/compensation", null);
+                default:
+                    return request("POST", "/employee", NEW_EMPLOYEE);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends a request and reads the whole response, leaving the connection to be reused
+     */
+    private boolean request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+        try (InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (response != null) {
+                byte[] buffer = new byte[8192];
+                while (response.read(buffer) != -1) {
+                    // Drain the response so the connection can be kept alive
+                }
+            }
+        }
+
+        return status < 400;
+    }
+
+    private static Recorder[] newRecorders() {
+        Recorder[] recorders = new Recorder[Endpoint.values().length];
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Recorder();
+        }
+
+        return recorders;
+    }
+
+    /**
+     * Latencies recorded for one endpoint, by one client or merged across all of them
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        void record(long latencyNanos, boolean succeeded) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            latencies[count++] = latencyNanos;
+            if (!succeeded) {
+                errors++;
+            }
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        EndpointResult toResult(long durationMillis) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+
+            return new EndpointResult(count, errors, count * 1000.0 / durationMillis,
+                    percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99));
+        }
+
+        private static double percentileMillis(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Outcome of driving one endpoint
+     */
+    public static final class EndpointResult {
+        private final int requests;
+        private final int errors;
+        private final double throughputPerSecond;
+        private final double p50Millis;
+        private final double p99Millis;
+
+        EndpointResult(int requests, int errors, double throughputPerSecond, double p50Millis, double p99Millis) {
+            this.requests = requests;
+            this.errors = errors;
+            this.throughputPerSecond = throughputPerSecond;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public double getThroughputPerSecond() {
+            return throughputPerSecond;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+    }
+
+    /**
+     * Generates an org, starts the application against it and runs the load, taking the generator's arguments along
+     * with --clients, --warmup-seconds, --duration-seconds and --report
+     */
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        File seedDirectory = new File(arguments.get("output-dir", "build/synthetic-org"));
+        List<String> employeeIds = new SyntheticOrgGenerator(arguments.getInt("headcount", 10000),
+                arguments.getInt("min-fan-out", 2),
+                arguments.getInt("max-fan-out", 10),
+                SyntheticOrgGenerator.FanOutDistribution.valueOf(
+                        arguments.get("fan-out-distribution", "SKEWED").toUpperCase()),
+                arguments.getInt("max-depth", 12),
+                arguments.getInt("salary-history", 5),
+                arguments.getLong("seed", 42))
+                .generate(seedDirectory);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ChallengeApplication.class)
+                .properties("server.port=0",
+                        "logging.level.com.mindex=WARN",
+                        "challenge.bootstrap.employee-seed-file="
+                                + new File(seedDirectory, "employee_database.json").getAbsolutePath(),
+                        "challenge.bootstrap.compensation-seed-file="
+                                + new File(seedDirectory, "compensation_database.json").getAbsolutePath())
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            int clients = arguments.getInt("clients", 32);
+
+            LOG.info("Running load from [{}] clients against port [{}]", clients, port);
+            Map<String, EndpointResult> results = new LoadTest("http://localhost:" + port, employeeIds)
+                    .run(clients, arguments.getLong("warmup-seconds", 5) * 1000,
+                            arguments.getLong("duration-seconds", 30) * 1000);
+
+            System.out.printf("%-40s %10s %8s %12s %10s %10s%n", "endpoint", "requests", "errors", "req/s",
+                    "p50 ms", "p99 ms");
+            for (Map.Entry<String, EndpointResult> result : results.entrySet()) {
+                System.out.printf("%-40s %10d %8d %12.1f %10.2f %10.2f%n", result.getKey(),
+                        result.getValue().getRequests(), result.getValue().getErrors(),
+                        result.getValue().getThroughputPerSecond(), result.getValue().getP50Millis(),
+                        result.getValue().getP99Millis());
+            }
+
+            File report = new File(arguments.get("report", "build/reports/load-test.json"));
+            if (report.getParentFile() != null && !report.getParentFile().isDirectory()
+                    && !report.getParentFile().mkdirs()) {
+                throw new IOException("Could not create " + report.getParentFile());
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(report, results);
+            LOG.info("Wrote load test report to [{}]", report);
+        } finally {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.mindex.challenge.loadtest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates a synthetic org and salary histories in the same format as the bundled seeds, so they can be loaded with
+ * challenge.bootstrap.employee-seed-file and challenge.bootstrap.compensation-seed-file.
+ * <p>
+ * The org is built breadth first from a single root: every manager is given a number of direct reports drawn from the
+ * fan-out distribution until the headcount is reached, and employees on the deepest level never get reports. Generation
+ * is deterministic for a given seed.
+ */
+public class SyntheticOrgGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(SyntheticOrgGenerator.class);
+
+    private static final String[] FIRST_NAMES = {"John", "Paul", "George", "Ringo", "Pete", "Yoko", "Linda", "Cynthia",
+            "Pattie", "Maureen", "Stuart", "Brian"};
+    private static final String[] LAST_NAMES = {"Lennon", "McCartney", "Harrison", "Starr", "Best", "Ono", "Eastman",
+            "Powell", "Boyd", "Cox", "Sutcliffe", "Epstein"};
+    private static final String[] DEPARTMENTS = {"Engineering", "Sales", "Finance", "Operations", "Marketing"};
+    private static final String[] POSITIONS = {"Chief Executive Officer", "Vice President", "Director", "Manager",
+            "Team Lead"};
+    private static final String[] INDIVIDUAL_POSITIONS = {"Developer I", "Developer II", "Developer III",
+            "Developer IV", "Developer V"};
+
+    /**
+     * Shapes of the distribution each manager's number of direct reports is drawn from
+     */
+    public enum FanOutDistribution {
+        /**
+         * Every count between the minimum and maximum fan-out is equally likely
+         */
+        UNIFORM,
+        /**
+         * Counts near the minimum fan-out are the most likely, with a long tail up to the maximum, like most orgs
+         */
+        SKEWED
+    }
+
+    private final int headcount;
+    private final int minFanOut;
+    private final int maxFanOut;
+    private final FanOutDistribution fanOutDistribution;
+    private final int maxDepth;
+    private final int salaryHistoryLength;
+    private final Random random;
+
+    private String[] employeeIds;
+    private int[] depths;
+    private int[] firstReports;
+    private int[] reportCounts;
+
+    public SyntheticOrgGenerator(int headcount, int minFanOut, int maxFanOut, FanOutDistribution fanOutDistribution,
+                                 int maxDepth, int salaryHistoryLength, long seed) {
+        if (headcount < 1 || minFanOut < 1 || maxFanOut < minFanOut || maxDepth < 0 || salaryHistoryLength < 0) {
+            throw new IllegalArgumentException("Invalid org parameters");
+        }
+
+        this.headcount = headcount;
+        this.minFanOut = minFanOut;
+        this.maxFanOut = maxFanOut;
+        this.fanOutDistribution = fanOutDistribution;
+        this.maxDepth = maxDepth;
+        this.salaryHistoryLength = salaryHistoryLength;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates the org, then writes the employee and compensation seeds into the output directory
+     *
+     * @param outputDirectory the directory to write employee_database.json and compensation_database.json to
+     * @return the employeeIds of the generated employees, breadth first from the root
+     */
+    public List<String> generate(File outputDirectory) throws IOException {
+        buildOrg();
+
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Could not create " + outputDirectory);
+        }
+
+        JsonFactory jsonFactory = new JsonFactory();
+        try (JsonGenerator employees = jsonFactory.createGenerator(new File(outputDirectory, "employee_database.json"),
+                JsonEncoding.UTF8)) {
+            writeEmployees(employees);
+        }
+        try (JsonGenerator compensations = jsonFactory.createGenerator(
+                new File(outputDirectory, "compensation_database.json"), JsonEncoding.UTF8)) {
+            writeCompensations(compensations);
+        }
+
+        LOG.info("Generated [{}] employees and [{}] compensations in [{}]", employeeIds.length,
+                (long) employeeIds.length * salaryHistoryLength, outputDirectory);
+        return new ArrayList<>(Arrays.asList(employeeIds));
+    }
+
+    /**
+     * Assigns every employee its dense position in breadth first order. Since managers are visited in that same order,
+     * each manager's direct reports are a contiguous run of positions.
+     */
+    private void buildOrg() {
+        employeeIds = new String[headcount];
+        depths = new int[headcount];
+        firstReports = new int[headcount];
+        reportCounts = new int[headcount];
+
+        employeeIds[0] = randomId();
+        int size = 1;
+        for (int manager = 0; manager < size && size < headcount; manager++) {
+            if (depths[manager] == maxDepth) {
+                continue;
+            }
+
+            int fanOut = Math.min(nextFanOut(), headcount - size);
+            firstReports[manager] = size;
+            reportCounts[manager] = fanOut;
+            for (int i = 0; i < fanOut; i++) {
+                employeeIds[size] = randomId();
+                depths[size] = depths[manager] + 1;
+                size++;
+            }
+        }
+
+        if (size < headcount) {
+            LOG.warn("Only [{}] of [{}] employees fit within a depth of [{}]", size, headcount, maxDepth);
+            employeeIds = Arrays.copyOf(employeeIds, size);
+        }
+    }
+
+    private int nextFanOut() {
+        int range = maxFanOut - minFanOut + 1;
+        if (fanOutDistribution == FanOutDistribution.UNIFORM) {
+            return minFanOut + random.nextInt(range);
+        }
+
+        double skewed = Math.pow(random.nextDouble(), 3);
+        return minFanOut + (int) (skewed * range);
+    }
+
+    private void writeEmployees(JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        for (int employee = 0; employee < employeeIds.length; employee++) {
+            generator.writeStartObject();
+            generator.writeStringField("employeeId", employeeIds[employee]);
+            generator.writeStringField("firstName", pick(FIRST_NAMES));
+            generator.writeStringField("lastName", pick(LAST_NAMES));
+            generator.writeStringField("position", reportCounts[employee] > 0
+                    ? POSITIONS[Math.min(depths[employee], POSITIONS.length - 1)]
+                    : pick(INDIVIDUAL_POSITIONS));
+            generator.writeStringField("department", pick(DEPARTMENTS));
+            if (reportCounts[employee] > 0) {
+                generator.writeArrayFieldStart("directReports");
+                for (int report = firstReports[employee]; report < firstReports[employee] + reportCounts[employee];
+                     report++) {
+                    generator.writeStartObject();
+                    generator.writeStringField("employeeId", employeeIds[report]);
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes a yearly salary history for every employee, starting higher the closer they are to the root and ending on
+     * a recent effective date
+     */
+    private void writeCompensations(JsonGenerator generator) throws IOException {
+        LocalDate lastEffectiveDate = LocalDate.of(2023, 1, 1);
+        generator.writeStartArray();
+        for (int employee = 0; employee < employeeIds.length; employee++) {
+            long salary = 60000 + Math.max(0, 8 - depths[employee]) * 20000L + random.nextInt(20000);
+            LocalDate effectiveDate = lastEffectiveDate.minusYears(salaryHistoryLength - 1)
+                    .plusDays(random.nextInt(365));
+            for (int i = 0; i < salaryHistoryLength; i++) {
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("employee");
+                generator.writeStringField("employeeId", employeeIds[employee]);
+                generator.writeEndObject();
+                generator.writeStringField("salary", BigDecimal.valueOf(salary).toPlainString());
+                generator.writeStringField("effectiveDate", effectiveDate.toString());
+                generator.writeEndObject();
+
+                salary += salary * (1 + random.nextInt(6)) / 100;
+                effectiveDate = effectiveDate.plusYears(1);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private String randomId() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Writes a synthetic org to the output directory, taking arguments like --headcount=100000
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        new SyntheticOrgGenerator(arguments.getInt("headcount", 10000),
+                arguments.getInt("min-fan-out", 2),
+                arguments.getInt("max-fan-out", 10),
+                FanOutDistribution.valueOf(arguments.get("fan-out-distribution", "SKEWED").toUpperCase()),
+                arguments.getInt("max-depth", 12),
+                arguments.getInt("salary-history", 5),
+                arguments.getLong("seed", 42))
+                .generate(new File(arguments.get("output-dir", "build/synthetic-org")));
+    }
+}
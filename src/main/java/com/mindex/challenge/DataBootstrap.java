@@ -1,19 +1,36 @@
 package com.mindex.challenge;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mindex.challenge.dao.CompensationRepository;
 import com.mindex.challenge.dao.EmployeeRepository;
 import com.mindex.challenge.data.Compensation;
 import com.mindex.challenge.data.Employee;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 @Component
-public class DataBootstrap {
+public class DataBootstrap implements SmartInitializingSingleton {
+    private static final Logger LOG = LoggerFactory.getLogger(DataBootstrap.class);
+
     private static final String EMPLOYEE_DATA_LOCATION = "/static/employee_database.json";
     private static final String COMPENSATION_DATA_LOCATION = "/static/compensation_database.json";
 
@@ -26,29 +43,89 @@ public class DataBootstrap {
     @Autowired
     private ObjectMapper objectMapper;
 
-    @PostConstruct
-    public void init() {
-        InputStream employeeStream = this.getClass()
-                .getResourceAsStream(EMPLOYEE_DATA_LOCATION);
-        InputStream compensationStream = this.getClass()
-                .getResourceAsStream(COMPENSATION_DATA_LOCATION);
+    @Value("${challenge.bootstrap.batch-size:1000}")
+    private int batchSize;
 
-        Employee[] employees;
-        Compensation[] compensations;
+    @Value("${challenge.bootstrap.skip-if-present:true}")
+    private boolean skipIfPresent;
 
-        try {
-            employees = objectMapper.readValue(employeeStream, Employee[].class);
-            compensations = objectMapper.readValue(compensationStream, Compensation[].class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    @Value("${challenge.bootstrap.employee-seed-file:}")
+    private String employeeSeedFile;
+
+    @Value("${challenge.bootstrap.compensation-seed-file:}")
+    private String compensationSeedFile;
+
+    /**
+     * Bootstraps the data once every singleton has been created. Loading from worker threads while this bean is still
+     * being initialized would deadlock, since their inserts publish events to listener beans that can't be created until
+     * initialization finishes.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        init();
+    }
+
+    /**
+     * Loads the employee and compensation seeds concurrently, streaming each one and inserting it in batches. Nothing
+     * is loaded when a persistent database already has data in it, unless skipping is turned off.
+     */
+    public void init() {
+        if (skipIfPresent && (employeeRepository.count() > 0 || compensationRepository.count() > 0)) {
+            LOG.info("Skipping bootstrap, the database already contains data");
+            return;
         }
 
-        for (Employee employee : employees) {
-            employeeRepository.insert(employee);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Integer> employees = CompletableFuture.supplyAsync(() ->
+                    load(employeeSeedFile, EMPLOYEE_DATA_LOCATION, Employee.class, employeeRepository::insert),
+                    executor);
+            CompletableFuture<Integer> compensations = CompletableFuture.supplyAsync(() ->
+                    load(compensationSeedFile, COMPENSATION_DATA_LOCATION, Compensation.class,
+                            compensationRepository::insert), executor);
+
+            LOG.info("Bootstrapped [{}] employees and [{}] compensations", employees.join(), compensations.join());
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
         }
+    }
 
-        for (Compensation compensation : compensations) {
-            compensationRepository.insert(compensation);
+    /**
+     * Streams the JSON array of entities in the seed file, or the bundled seed when no file is configured, inserting
+     * them in batches
+     *
+     * @return the number of entities loaded
+     */
+    private <T> int load(String seedFile, String defaultLocation, Class<T> type, Consumer<List<T>> insert) {
+        try (InputStream seed = StringUtils.isBlank(seedFile)
+                ? this.getClass().getResourceAsStream(defaultLocation)
+                : new FileInputStream(seedFile);
+             JsonParser parser = objectMapper.getFactory().createParser(seed)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of " + type.getSimpleName() + " in the seed");
+            }
+
+            int loaded = 0;
+            List<T> batch = new ArrayList<>(batchSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(objectMapper.readValue(parser, type));
+                if (batch.size() == batchSize) {
+                    insert.accept(batch);
+                    loaded += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                insert.accept(batch);
+                loaded += batch.size();
+            }
+
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
@@ -0,0 +1,29 @@
+package com.mindex.challenge.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mindex.challenge.data.Compensation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Cache of the most recent Compensation for each employeeId, evicting the least recently used entries once it is
+     * full and any entry that has been cached for longer than the configured expiry
+     */
+    @Bean
+    public Cache<String, Compensation> latestCompensationCache(
+            @Value("${challenge.cache.latest-compensation.maximum-size:10000}") long maximumSize,
+            @Value("${challenge.cache.latest-compensation.expire-after-write-seconds:600}") long expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+}
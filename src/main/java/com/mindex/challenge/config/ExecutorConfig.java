@@ -0,0 +1,33 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.metrics.RequestQueryStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class ExecutorConfig {
+
+    /**
+     * Fixed size pool that reporting structure requests fetch wide levels of employees on. Once its queue is full a
+     * fetch runs on the requesting thread instead, so a burst of requests slows down rather than failing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reportingStructureExecutor(
+            @Value("${challenge.reporting-structure.parallelism:8}") int parallelism,
+            @Value("${challenge.reporting-structure.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("reporting-structure-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(RequestQueryStats::propagate);
+        return executor;
+    }
+}
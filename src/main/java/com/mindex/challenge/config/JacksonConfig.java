@@ -0,0 +1,28 @@
+package com.mindex.challenge.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.mindex.challenge.data.Employee;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Applies the {@link Employee#FIELDS_FILTER} to Employees through a mix-in, so only the application's ObjectMapper
+     * needs a filter for it and any other ObjectMapper serializes Employees as usual
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer employeeFieldsFilter() {
+        return builder -> builder.mixIn(Employee.class, EmployeeFieldsFilter.class)
+                .filters(new SimpleFilterProvider()
+                        .addFilter(Employee.FIELDS_FILTER, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    @JsonFilter(Employee.FIELDS_FILTER)
+    private abstract static class EmployeeFieldsFilter {
+    }
+}
@@ -1,41 +1,162 @@
 package com.mindex.challenge.config;
 
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.h2.H2Backend;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoClientDbFactory;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.util.CloseableIterator;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @EnableMongoRepositories(basePackageClasses = EmployeeRepository.class)
 @Configuration
 public class MongoConfig {
+    private static final Logger LOG = LoggerFactory.getLogger(MongoConfig.class);
+
+    static final String DATABASE_NAME = "test";
+
+    private static final String LEGACY_COMPENSATION_EMPLOYEE_ID = "employee.employeeId";
+
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+
     @Bean
     public MongoTemplate mongoTemplate(MongoClient mongoClient) {
-        return new MongoTemplate(mongoDbFactory(mongoClient));
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoDbFactory(mongoClient));
+        migrateCompensations(mongoTemplate);
+        ensureIndexes(mongoTemplate);
+        return mongoTemplate;
     }
 
     @Bean
     public MongoDbFactory mongoDbFactory(MongoClient mongoClient) {
-        return new SimpleMongoClientDbFactory(mongoClient, "test");
+        return new SimpleMongoClientDbFactory(mongoClient, DATABASE_NAME);
     }
 
+    /**
+     * Starts the embedded Mongo server. The default memory backend loses everything on shutdown, the h2 backend
+     * persists every collection to an H2 MVStore file so it is still there on the next start.
+     */
     @Bean(destroyMethod = "shutdown")
-    public MongoServer mongoServer() {
-        MongoServer mongoServer = new MongoServer(new MemoryBackend());
+    public MongoServer mongoServer(@Value("${challenge.mongo.backend:memory}") String backend,
+                                   @Value("${challenge.mongo.h2-file:challenge.mv}") String h2File) {
+        MongoServer mongoServer;
+        if ("h2".equals(backend)) {
+            LOG.info("Using persistent H2 Mongo backend stored in [{}]", h2File);
+            mongoServer = new MongoServer(new H2Backend(h2File));
+        } else if ("memory".equals(backend)) {
+            mongoServer = new MongoServer(new MemoryBackend());
+        } else {
+            throw new IllegalArgumentException("Unknown challenge.mongo.backend: " + backend);
+        }
+
         mongoServer.bind();
         return mongoServer;
     }
 
     @Bean(destroyMethod = "close")
-    public MongoClient mongoClient() {
-        return MongoClients.create("mongodb:/" + mongoServer().getLocalAddress());
+    public MongoClient mongoClient(MongoServer mongoServer) {
+        return MongoClients.create("mongodb:/" + mongoServer.getLocalAddress());
     }
-}
 
+    /**
+     * Creates the indexes backing the repository queries, before anything is read or written through the template
+     */
+    private void ensureIndexes(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(Employee.class)
+                .ensureIndex(new Index().on("employeeId", Sort.Direction.ASC)
+                        .unique()
+                        .named("employeeId"));
+        // Covers the version lookups answering conditional reads, so they never fetch the document
+        mongoTemplate.indexOps(Employee.class)
+                .ensureIndex(new Index().on("employeeId", Sort.Direction.ASC)
+                        .on("version", Sort.Direction.ASC)
+                        .named("employeeId_version"));
+        // Covers the count only reads of the stored numberOfReports
+        mongoTemplate.indexOps(Employee.class)
+                .ensureIndex(new Index().on("employeeId", Sort.Direction.ASC)
+                        .on("numberOfReports", Sort.Direction.ASC)
+                        .named("employeeId_numberOfReports"));
+        // Finds the managers of an Employee when a change to its reports is applied up its chain of managers
+        mongoTemplate.indexOps(Employee.class)
+                .ensureIndex(new Index().on("directReports.employeeId", Sort.Direction.ASC)
+                        .named("directReports_employeeId"));
 
+        mongoTemplate.indexOps(Compensation.class)
+                .ensureIndex(new Index().on("employeeId", Sort.Direction.ASC)
+                        .on("effectiveDate", Sort.Direction.DESC)
+                        .on("_id", Sort.Direction.DESC)
+                        .named("employeeId_effectiveDate_id"));
+    }
+
+    /**
+     * Moves Compensations stored with a whole embedded Employee over to only storing its employeeId, and drops the
+     * indexes on the embedded employeeId so they can be recreated on the new field. Compensations already migrated are
+     * left alone, so this is safe to run on every start.
+     *
+     * @return the number of Compensations migrated
+     */
+    static long migrateCompensations(MongoTemplate mongoTemplate) {
+        String collectionName = mongoTemplate.getCollectionName(Compensation.class);
+        Query legacy = query(where("employeeId").exists(false).and(LEGACY_COMPENSATION_EMPLOYEE_ID).exists(true));
+        legacy.fields().include(LEGACY_COMPENSATION_EMPLOYEE_ID);
+
+        long migrated = 0;
+        int batched = 0;
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collectionName);
+        try (CloseableIterator<Document> documents = mongoTemplate.stream(legacy, Document.class, collectionName)) {
+            while (documents.hasNext()) {
+                Document document = documents.next();
+                bulkOperations.updateOne(query(where("_id").is(document.get("_id"))),
+                        Update.update("employeeId", document.get("employee", Document.class).get("employeeId"))
+                                .unset("employee"));
+                if (++batched == MIGRATION_BATCH_SIZE) {
+                    bulkOperations.execute();
+                    migrated += batched;
+                    batched = 0;
+                    bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collectionName);
+                }
+            }
+        }
+        if (batched > 0) {
+            bulkOperations.execute();
+            migrated += batched;
+        }
+
+        for (IndexInfo index : mongoTemplate.indexOps(collectionName).getIndexInfo()) {
+            for (IndexField field : index.getIndexFields()) {
+                if (LEGACY_COMPENSATION_EMPLOYEE_ID.equals(field.getKey())) {
+                    LOG.info("Dropping compensation index [{}] on the embedded employee", index.getName());
+                    mongoTemplate.indexOps(collectionName).dropIndex(index.getName());
+                    break;
+                }
+            }
+        }
+
+        if (migrated > 0) {
+            LOG.info("Migrated [{}] compensations to only store their employeeId", migrated);
+        }
+        return migrated;
+    }
+}
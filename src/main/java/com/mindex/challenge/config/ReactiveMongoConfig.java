@@ -0,0 +1,37 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.dao.reactive.ReactiveEmployeeRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Reactive Mongo client, template and repositories, only created under the "reactive" profile. They share the embedded
+ * server and database of the blocking ones in {@link MongoConfig}, which the reactive services still write the report
+ * counts through.
+ */
+@EnableReactiveMongoRepositories(basePackageClasses = ReactiveEmployeeRepository.class)
+@Configuration
+@Profile("reactive")
+public class ReactiveMongoConfig {
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient) {
+        return new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient,
+                MongoConfig.DATABASE_NAME));
+    }
+
+    /**
+     * Non-blocking client for the reactive repositories, connected to the same embedded server as the blocking one
+     */
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(MongoServer mongoServer) {
+        return MongoClients.create("mongodb:/" + mongoServer.getLocalAddress());
+    }
+}
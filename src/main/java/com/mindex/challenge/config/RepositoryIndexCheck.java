@@ -0,0 +1,143 @@
+package com.mindex.challenge.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Startup check that logs every derived repository query that can't be answered from an index, either because no
+ * index leads with one of the fields it filters on, or because it has to sort its results in memory
+ */
+@Component
+public class RepositoryIndexCheck {
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryIndexCheck.class);
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void check() {
+        Repositories repositories = new Repositories(applicationContext);
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation repositoryInformation = repositories.getRequiredRepositoryInformation(domainType);
+            List<IndexInfo> indexes = mongoTemplate.indexOps(domainType).getIndexInfo();
+
+            for (Method queryMethod : repositoryInformation.getQueryMethods()) {
+                String queryName = repositoryInformation.getRepositoryInterface().getSimpleName() + "."
+                        + queryMethod.getName();
+
+                if (queryMethod.isAnnotationPresent(Query.class)) {
+                    LOG.debug("Skipping index check for [{}], it declares its own query", queryName);
+                    continue;
+                }
+
+                check(queryName, new PartTree(queryMethod.getName(), domainType), indexes);
+            }
+        }
+    }
+
+    private void check(String queryName, PartTree partTree, List<IndexInfo> indexes) {
+        Set<String> filterFields = new HashSet<>();
+        Set<String> equalityFields = new HashSet<>();
+        for (Part part : partTree.getParts()) {
+            filterFields.add(part.getProperty().toDotPath());
+            if (part.getType() == Part.Type.SIMPLE_PROPERTY) {
+                equalityFields.add(part.getProperty().toDotPath());
+            }
+        }
+
+        if (filterFields.isEmpty()) {
+            return;
+        }
+
+        List<Sort.Order> sortOrders = new ArrayList<>();
+        partTree.getSort().forEach(sortOrders::add);
+
+        String filteringIndex = null;
+        for (IndexInfo index : indexes) {
+            List<IndexField> indexFields = index.getIndexFields();
+            if (indexFields.isEmpty() || !filterFields.contains(indexFields.get(0).getKey())) {
+                continue;
+            }
+
+            if (coversSort(indexFields, equalityFields, sortOrders)) {
+                LOG.info("Repository query [{}] uses index [{}]", queryName, index.getName());
+                return;
+            }
+
+            filteringIndex = index.getName();
+        }
+
+        if (filteringIndex == null) {
+            LOG.warn("Repository query [{}] cannot use an index, it filters on {} without an index leading with any "
+                    + "of those fields", queryName, filterFields);
+        } else {
+            LOG.warn("Repository query [{}] can only filter with index [{}], its sort on {} is done in memory",
+                    queryName, filteringIndex, sortOrders);
+        }
+    }
+
+    /**
+     * Checks whether the index fields following the fields filtered on for equality line up with the sort, in either
+     * the same or the exact opposite direction
+     */
+    private static boolean coversSort(List<IndexField> indexFields, Set<String> equalityFields,
+                                      List<Sort.Order> sortOrders) {
+        int position = 0;
+        while (position < indexFields.size() && equalityFields.contains(indexFields.get(position).getKey())) {
+            position++;
+        }
+
+        if (sortOrders.isEmpty()) {
+            return true;
+        }
+
+        if (indexFields.size() - position < sortOrders.size()) {
+            return false;
+        }
+
+        boolean sameDirection = true;
+        boolean oppositeDirection = true;
+        for (Sort.Order sortOrder : sortOrders) {
+            IndexField indexField = indexFields.get(position++);
+            if (!indexField.getKey().equals(fieldName(sortOrder.getProperty()))) {
+                return false;
+            }
+
+            sameDirection &= indexField.getDirection() == sortOrder.getDirection();
+            oppositeDirection &= indexField.getDirection() != null
+                    && indexField.getDirection() != sortOrder.getDirection();
+        }
+
+        return sameDirection || oppositeDirection;
+    }
+
+    /**
+     * Maps a sorted property to the field it is stored in, the id property is stored as _id
+     */
+    private static String fieldName(String property) {
+        return "id".equals(property) ? "_id" : property;
+    }
+}
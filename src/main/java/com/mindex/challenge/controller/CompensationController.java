@@ -1,20 +1,37 @@
 package com.mindex.challenge.controller;
 
+import com.mindex.challenge.data.BatchResult;
+import com.mindex.challenge.data.CacheStatistics;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationHistory;
+import com.mindex.challenge.data.PayrollRollup;
 import com.mindex.challenge.exceptions.NotFoundException;
 import com.mindex.challenge.service.CompensationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
 
 @RestController
+@Profile("!reactive")
 public class CompensationController {
     private static final Logger LOG = LoggerFactory.getLogger(CompensationController.class);
 
     @Autowired
     private CompensationService compensationService;
 
+    @Value("${challenge.batch.max-ids:100}")
+    private int maxBatchIds;
+
     @PostMapping("/compensation")
     public Compensation create(@RequestBody Compensation compensation) {
         LOG.debug("Received compensation create request for [{}]", compensation);
@@ -22,10 +39,69 @@ public class CompensationController {
         return compensationService.create(compensation);
     }
 
+    /**
+     * Finds an Employee's Compensation, tagged with the stored document it came from so a request revalidating a copy
+     * it already has gets a 304 without the Compensation being serialized
+     */
     @GetMapping("/employee/{employeeId}/compensation")
-    public Compensation findByEmployeeId(@PathVariable String employeeId) throws NotFoundException {
-        LOG.debug("Received find compensation by employee id request for employeeId [{}]", employeeId);
+    public ResponseEntity<Compensation> findByEmployeeId(@PathVariable String employeeId,
+                                                         @RequestParam(required = false)
+                                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf)
+            throws NotFoundException {
+        LOG.debug("Received find compensation by employee id request for employeeId [{}] as of [{}]", employeeId,
+                asOf);
+
+        Compensation compensation = asOf != null
+                ? compensationService.findByEmployeeIdAsOf(employeeId, asOf)
+                : compensationService.findByEmployeeId(employeeId);
+        return ResponseEntity.ok().eTag(ETags.of(compensation)).body(compensation);
+    }
+
+    /**
+     * Finds the most recent Compensation of each of the employees whose ids make up the body, reporting the ids without
+     * one as missing rather than failing the whole batch
+     */
+    @PostMapping("/compensation/latest:batch")
+    public BatchResult<Compensation> findByEmployeeIds(@RequestBody List<String> employeeIds) {
+        LOG.debug("Received batch find compensation request for [{}] employee ids", employeeIds.size());
+
+        if (employeeIds.size() > maxBatchIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchIds + " employee ids can be looked up at once");
+        }
+
+        return BatchResult.of(employeeIds, compensationService.findByEmployeeIds(employeeIds));
+    }
+
+    @GetMapping("/employee/{employeeId}/compensation/history")
+    public CompensationHistory findHistoryByEmployeeId(@PathVariable String employeeId,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "20") int limit) {
+        LOG.debug("Received find compensation history request for employeeId [{}], cursor [{}] and limit [{}]",
+                employeeId, cursor, limit);
+
+        try {
+            return compensationService.findHistoryByEmployeeId(employeeId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/employee/{employeeId}/payroll")
+    public PayrollRollup getPayrollRollup(@PathVariable String employeeId) throws NotFoundException {
+        LOG.debug("Received payroll rollup request for employeeId [{}]", employeeId);
+
+        try {
+            return compensationService.getPayrollRollup(employeeId);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/compensation/cache/stats")
+    public CacheStatistics getCacheStatistics() {
+        LOG.debug("Received compensation cache statistics request");
 
-        return compensationService.findByEmployeeId(employeeId);
+        return compensationService.getCacheStatistics();
     }
 }
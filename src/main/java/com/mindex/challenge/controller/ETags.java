@@ -0,0 +1,106 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.PreconditionFailedException;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Strong ETags built from the versions of stored Employees and Compensations, and the parsing of the conditional
+ * request headers that refer to them
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String of(Employee employee) {
+        return of(versionOf(employee.getVersion()));
+    }
+
+    /**
+     * Tags a representation limited to some of an Employee's fields, which differs from the whole Employee at the same
+     * version
+     *
+     * @param version the Employee's version
+     * @param fields  the names of the fields in the representation, or null if it has every field
+     */
+    static String of(long version, Set<String> fields) {
+        if (fields == null) {
+            return of(version);
+        }
+
+        return "\"" + version + "-" + String.join("+", new TreeSet<>(fields)) + "\"";
+    }
+
+    static String of(Employee employee, Set<String> fields) {
+        return of(versionOf(employee.getVersion()), fields);
+    }
+
+    /**
+     * Compensations are never updated in place, so their id tells them apart and the version only guards against that
+     * changing. The Employee filled in with the Compensation is read as it currently is, so its version is part of the
+     * tag too.
+     */
+    static String of(Compensation compensation) {
+        Employee employee = compensation.getEmployee();
+
+        return "\"" + compensation.getId() + "-" + versionOf(compensation.getVersion()) + "-"
+                + versionOf(employee == null ? null : employee.getVersion()) + "\"";
+    }
+
+    /**
+     * Checks an If-None-Match header against the current ETag, comparing weakly as revalidation allows
+     *
+     * @param ifNoneMatch the header value, a list of ETags or *
+     * @param eTag        the current ETag
+     * @return whether the client already has the current representation
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the version an If-Match header requires the stored Employee to be at
+     *
+     * @param ifMatch the header value, or null if the request had none
+     * @return the expected version, or null if the write is unconditional
+     * @throws PreconditionFailedException if the header is not a single strong ETag handed out for an Employee, since
+     *                                     it can't match the current one
+     */
+    static Long expectedVersion(String ifMatch) throws PreconditionFailedException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Falls through to the precondition failing
+            }
+        }
+
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the current version");
+    }
+
+    private static long versionOf(Long version) {
+        return version == null ? 0L : version;
+    }
+}
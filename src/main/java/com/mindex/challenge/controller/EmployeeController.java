@@ -1,21 +1,67 @@
 package com.mindex.challenge.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.mindex.challenge.data.BatchResult;
+import com.mindex.challenge.data.BulkCreateResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.ReportsPage;
 import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.exceptions.PreconditionFailedException;
 import com.mindex.challenge.service.EmployeeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 @RestController
+@Profile("!reactive")
 public class EmployeeController {
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeController.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${challenge.bulk-create.batch-size:500}")
+    private int bulkCreateBatchSize;
+
+    @Value("${challenge.batch.max-ids:100}")
+    private int maxBatchIds;
+
     @PostMapping("/employee")
     public Employee create(@RequestBody Employee employee) {
         LOG.debug("Received employee create request for [{}]", employee);
@@ -23,25 +69,251 @@ public class EmployeeController {
         return employeeService.create(employee);
     }
 
+    /**
+     * Creates one Employee per line of the newline delimited JSON request body, parsing the body as it streams in and
+     * creating the Employees in batches. One result line is written for each input line, in the same order, with
+     * either the assigned employeeId or the reason that line could not be created.
+     */
+    @PostMapping(value = "/employee/bulk", consumes = NDJSON)
+    public void bulkCreate(InputStream body, HttpServletResponse response) throws IOException {
+        LOG.debug("Received bulk employee create request");
+
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ObjectReader employeeReader = objectMapper.readerFor(Employee.class);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Writer output = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(),
+                StandardCharsets.UTF_8));
+
+        List<BulkCreateResult> pendingResults = new ArrayList<>();
+        List<Employee> batch = new ArrayList<>();
+        int index = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            try {
+                Employee employee = employeeReader.readValue(line);
+                if (employee == null) {
+                    pendingResults.add(BulkCreateResult.failed("Invalid employee: null"));
+                } else {
+                    batch.add(employee);
+                    pendingResults.add(null);
+                }
+            } catch (JsonProcessingException e) {
+                pendingResults.add(BulkCreateResult.failed("Invalid employee: " + e.getOriginalMessage()));
+            }
+
+            // Counting every line, not only the valid ones, keeps a body of mostly invalid lines from piling up
+            if (pendingResults.size() == bulkCreateBatchSize) {
+                index = writeResults(output, index, pendingResults, employeeService.createAll(batch));
+                pendingResults.clear();
+                batch.clear();
+            }
+        }
+
+        writeResults(output, index, pendingResults, employeeService.createAll(batch));
+        output.flush();
+    }
+
+    /**
+     * Reads an Employee, tagged with its version. A request revalidating a copy it already has is answered from the
+     * version alone, without reading or serializing the Employee. When fields is given only those fields are read and
+     * serialized.
+     */
     @GetMapping("/employee/{id}")
-    public Employee read(@PathVariable String id) throws NotFoundException {
-        LOG.debug("Received employee read request for id [{}]", id);
+    public ResponseEntity<MappingJacksonValue> read(@PathVariable String id,
+                                                    @RequestParam(required = false) Set<String> fields,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                            String ifNoneMatch) throws NotFoundException {
+        LOG.debug("Received employee read request for id [{}] and fields [{}]", id, fields);
+
+        try {
+            if (ifNoneMatch != null) {
+                String eTag = ETags.of(employeeService.readVersion(id), fields);
+                if (ETags.matches(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                }
+            }
 
-        return employeeService.read(id);
+            Employee employee = employeeService.read(id, fields);
+            return ResponseEntity.ok().eTag(ETags.of(employee, fields)).body(withFields(employee, fields));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads every Employee in a comma separated list of ids at once, reporting the ids that can't be found as missing
+     * rather than failing the whole batch
+     */
+    @GetMapping(value = "/employee", params = "ids")
+    public BatchResult<Employee> readAll(@RequestParam List<String> ids) {
+        LOG.debug("Received batch employee read request for [{}] ids", ids.size());
+
+        if (ids.size() > maxBatchIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchIds + " employee ids can be read at once");
+        }
+
+        return BatchResult.of(ids, employeeService.readAll(ids));
     }
 
     @PutMapping("/employee/{id}")
-    public Employee update(@PathVariable String id, @RequestBody Employee employee) {
-        LOG.debug("Received employee update request for id [{}] and employee [{}]", id, employee);
+    public ResponseEntity<Employee> update(@PathVariable String id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                   String ifMatch,
+                                           @RequestBody Employee employee) throws PreconditionFailedException {
+        LOG.debug("Received employee update request for id [{}], If-Match [{}] and employee [{}]", id, ifMatch,
+                employee);
 
         employee.setEmployeeId(id);
-        return employeeService.update(employee);
+        Employee updated = employeeService.update(employee, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updated)).body(updated);
+    }
+
+    @PatchMapping("/employee/{id}")
+    public ResponseEntity<Employee> patch(@PathVariable String id,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch,
+                                          @RequestBody EmployeePatch patch)
+            throws NotFoundException, PreconditionFailedException {
+        LOG.debug("Received employee patch request for id [{}], If-Match [{}] and patch [{}]", id, ifMatch, patch);
+
+        Employee patched = employeeService.patch(id, patch, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(patched)).body(patched);
     }
 
     @GetMapping("/employee/{id}/reportingStructure")
-    public ReportingStructure getReportingStructure(@PathVariable String id) throws NotFoundException {
-        LOG.debug("Received employee reporting structure request for id [{}]", id);
+    public MappingJacksonValue getReportingStructure(@PathVariable String id,
+                                                     @RequestParam(required = false) Integer maxDepth,
+                                                     @RequestParam(required = false) Set<String> fields)
+            throws NotFoundException {
+        LOG.debug("Received employee reporting structure request for id [{}], max depth [{}] and fields [{}]", id,
+                maxDepth, fields);
+
+        if (maxDepth != null && maxDepth < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxDepth must not be negative");
+        }
+
+        try {
+            ReportingStructure reportingStructure = employeeService.getReportingStructure(id, maxDepth, fields);
+            if (fields == null) {
+                return withFields(reportingStructure, null);
+            }
+
+            // The employeeIds and directReports make up the structure, so they are kept whichever fields were asked for
+            Set<String> nodeFields = new HashSet<>(fields);
+            nodeFields.add("employeeId");
+            nodeFields.add("directReports");
+            return withFields(reportingStructure, nodeFields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the reporting structure as it is walked instead of building it first, for hierarchies too large to hold in
+     * memory. numberOfReports comes after the employee in the response.
+     */
+    @GetMapping(value = "/employee/{id}/reportingStructure", params = "stream=true")
+    public void streamReportingStructure(@PathVariable String id,
+                                         @RequestParam(required = false) Integer maxDepth,
+                                         @RequestParam(required = false) Set<String> fields,
+                                         HttpServletResponse response) throws NotFoundException, IOException {
+        LOG.debug("Received streaming employee reporting structure request for id [{}], max depth [{}] and fields [{}]",
+                id, maxDepth, fields);
+
+        if (maxDepth != null && maxDepth < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxDepth must not be negative");
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // Nothing reaches the response until the generator's buffer first fills, so an Employee that can't be found is
+        // still answered with an error status
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        try {
+            employeeService.writeReportingStructure(id, maxDepth, fields, generator);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        generator.flush();
+    }
+
+    @GetMapping("/employee/{id}/reports")
+    public ReportsPage findReports(@PathVariable String id,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "20") int limit) throws NotFoundException {
+        LOG.debug("Received employee reports request for id [{}], cursor [{}] and limit [{}]", id, cursor, limit);
+
+        try {
+            return employeeService.findReports(id, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/employee/{id}/numberOfReports")
+    public int getNumberOfReports(@PathVariable String id) throws NotFoundException {
+        LOG.debug("Received employee number of reports request for id [{}]", id);
+
+        return employeeService.getNumberOfReports(id);
+    }
+
+    @GetMapping("/employee/{id}/reports/{reportId}")
+    public boolean isReport(@PathVariable String id, @PathVariable String reportId) throws NotFoundException {
+        LOG.debug("Received employee report membership request for id [{}] and report id [{}]", id, reportId);
+
+        try {
+            return employeeService.isReportOf(reportId, id);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one line per pending result, filling the gaps left for records that were part of the batch with the
+     * outcome of creating the batch
+     *
+     * @return the index of the next record
+     */
+    private int writeResults(Writer output, int index, List<BulkCreateResult> pendingResults,
+                             List<BulkCreateResult> batchResults) throws IOException {
+        Iterator<BulkCreateResult> batchResultIterator = batchResults.iterator();
+        for (BulkCreateResult result : pendingResults) {
+            if (result == null) {
+                result = batchResultIterator.next();
+            }
+
+            result.setIndex(index++);
+            output.write(objectMapper.writeValueAsString(result));
+            output.write('\n');
+        }
+
+        output.flush();
+        return index;
+    }
+
+    /**
+     * Wraps a response body so only the given fields of each Employee in it are serialized
+     *
+     * @param body   the response body
+     * @param fields the names of the fields to serialize, or null to serialize every field
+     * @return the wrapped body
+     */
+    private static MappingJacksonValue withFields(Object body, Set<String> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (fields != null) {
+            value.setFilters(new SimpleFilterProvider().addFilter(Employee.FIELDS_FILTER,
+                    SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        }
 
-        return employeeService.getReportingStructure(id);
+        return value;
     }
 }
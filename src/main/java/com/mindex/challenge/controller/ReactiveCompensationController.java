@@ -0,0 +1,36 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.service.ReactiveCompensationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking version of {@link CompensationController} served by WebFlux under the "reactive" profile
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveCompensationController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveCompensationController.class);
+
+    @Autowired
+    private ReactiveCompensationService compensationService;
+
+    @PostMapping("/compensation")
+    public Mono<Compensation> create(@RequestBody Compensation compensation) {
+        LOG.debug("Received compensation create request for [{}]", compensation);
+
+        return compensationService.create(compensation);
+    }
+
+    @GetMapping("/employee/{employeeId}/compensation")
+    public Mono<Compensation> findByEmployeeId(@PathVariable String employeeId) {
+        LOG.debug("Received find compensation by employee id request for employeeId [{}]", employeeId);
+
+        return compensationService.findByEmployeeId(employeeId);
+    }
+}
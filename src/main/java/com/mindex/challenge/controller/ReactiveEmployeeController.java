@@ -0,0 +1,60 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking version of {@link EmployeeController} served by WebFlux under the "reactive" profile, with the same
+ * request and response bodies
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveEmployeeController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeController.class);
+
+    @Autowired
+    private ReactiveEmployeeService employeeService;
+
+    @PostMapping("/employee")
+    public Mono<Employee> create(@RequestBody Employee employee) {
+        LOG.debug("Received employee create request for [{}]", employee);
+
+        return employeeService.create(employee);
+    }
+
+    @GetMapping("/employee/{id}")
+    public Mono<Employee> read(@PathVariable String id) {
+        LOG.debug("Received employee read request for id [{}]", id);
+
+        return employeeService.read(id);
+    }
+
+    @PutMapping("/employee/{id}")
+    public Mono<Employee> update(@PathVariable String id, @RequestBody Employee employee) {
+        LOG.debug("Received employee update request for id [{}] and employee [{}]", id, employee);
+
+        employee.setEmployeeId(id);
+        return employeeService.update(employee);
+    }
+
+    @GetMapping("/employee/{id}/reportingStructure")
+    public Mono<ReportingStructure> getReportingStructure(@PathVariable String id,
+                                                          @RequestParam(required = false) Integer maxDepth) {
+        LOG.debug("Received employee reporting structure request for id [{}] and max depth [{}]", id, maxDepth);
+
+        if (maxDepth != null && maxDepth < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxDepth must not be negative");
+        }
+
+        return employeeService.getReportingStructure(id, maxDepth);
+    }
+}
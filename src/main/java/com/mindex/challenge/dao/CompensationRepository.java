@@ -3,6 +3,11 @@ package com.mindex.challenge.dao;
 import com.mindex.challenge.data.Compensation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface CompensationRepository extends MongoRepository<Compensation, String> {
-    Compensation findFirstByEmployee_EmployeeIdOrderByEffectiveDateDesc(String employeeId);
+import java.time.LocalDate;
+
+public interface CompensationRepository extends MongoRepository<Compensation, String>, CompensationRepositoryCustom {
+    Compensation findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(String employeeId);
+
+    Compensation findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDescIdDesc(
+            String employeeId, LocalDate asOf);
 }
@@ -0,0 +1,33 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compensation queries that can't be derived from a repository method name
+ */
+public interface CompensationRepositoryCustom {
+    /**
+     * Finds the next Compensations for an Employee in effectiveDate order, Compensations sharing an effectiveDate are
+     * ordered by id. Compensations without an effectiveDate come before every other.
+     *
+     * @param employeeId         the id of the Employee to find Compensations for
+     * @param afterEffectiveDate the effectiveDate of the last Compensation already seen, null when it has none
+     * @param afterId            the id of the last Compensation already seen, or null to start from the oldest
+     * @param limit              the maximum number of Compensations to find
+     * @return the Compensations following the last one seen
+     */
+    List<Compensation> findHistoryPage(String employeeId, LocalDate afterEffectiveDate, String afterId, int limit);
+
+    /**
+     * Finds the most recent Compensation of each of the Employees with one query, the one with the greatest id wins a
+     * tie on effectiveDate
+     *
+     * @param employeeIds the ids of the Employees to find Compensations for
+     * @return the most recent Compensation of each Employee that has any
+     */
+    List<Compensation> findLatestByEmployeeIdIn(Collection<String> employeeIds);
+}
@@ -0,0 +1,64 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.replaceRoot;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CompensationRepositoryImpl implements CompensationRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Compensation> findHistoryPage(String employeeId, LocalDate afterEffectiveDate, String afterId,
+                                              int limit) {
+        Criteria criteria = where("employeeId").is(employeeId);
+        if (afterId != null && afterEffectiveDate != null) {
+            criteria.orOperator(where("effectiveDate").gt(afterEffectiveDate),
+                    where("effectiveDate").is(afterEffectiveDate).and("_id").gt(new ObjectId(afterId)));
+        } else if (afterId != null) {
+            // Missing effectiveDates sort first, so every dated Compensation follows an undated one
+            criteria.orOperator(where("effectiveDate").ne(null),
+                    where("effectiveDate").is(null).and("_id").gt(new ObjectId(afterId)));
+        }
+
+        Query query = query(criteria).with(Sort.by(Sort.Direction.ASC, "effectiveDate", "_id"))
+                .limit(limit);
+
+        return mongoTemplate.find(query, Compensation.class);
+    }
+
+    /**
+     * Sorts in the order of the employeeId_effectiveDate_id index, so the first Compensation grouped for each Employee
+     * is its most recent
+     */
+    @Override
+    public List<Compensation> findLatestByEmployeeIdIn(Collection<String> employeeIds) {
+        Aggregation aggregation = newAggregation(
+                match(where("employeeId").in(employeeIds)),
+                sort(Sort.by(Sort.Direction.ASC, "employeeId")
+                        .and(Sort.by(Sort.Direction.DESC, "effectiveDate", "id"))),
+                group("employeeId").first(Aggregation.ROOT).as("latest"),
+                replaceRoot("latest"));
+
+        return mongoTemplate.aggregate(aggregation, Compensation.class, Compensation.class)
+                .getMappedResults();
+    }
+}
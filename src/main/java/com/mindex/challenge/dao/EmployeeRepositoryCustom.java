@@ -0,0 +1,140 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Employee queries that can't be derived from a repository method name
+ */
+public interface EmployeeRepositoryCustom {
+    /**
+     * Replaces every field of the stored Employee with the same employeeId as the given Employee, inserting it if it
+     * does not exist yet
+     *
+     * @param employee the Employee to store, its version is set to the stored one
+     * @return the stored Employee as it was just before it was replaced, with only its directReports and version set,
+     * or null if it was inserted
+     */
+    Employee upsertByEmployeeId(Employee employee);
+
+    /**
+     * Replaces every field of the stored Employee with the same employeeId as the given Employee, only if it is still
+     * at the expected version
+     *
+     * @param employee        the Employee to store, its version is set to the stored one when it is replaced
+     * @param expectedVersion the version the stored Employee must be at
+     * @return the stored Employee as it was just before it was replaced, with only its directReports and version set,
+     * or null if it does not exist or is at another version
+     */
+    Employee replaceByEmployeeId(Employee employee, long expectedVersion);
+
+    /**
+     * Applies a partial update to the stored Employee with the given employeeId, only writing the fields it changes
+     *
+     * @param employeeId the id of the Employee to update
+     * @param patch      the changes to apply
+     * @return the reports the update actually added to and removed from the directReports, or null if no Employee
+     * with employeeId was found
+     */
+    EmployeePatch patchByEmployeeId(String employeeId, EmployeePatch patch);
+
+    /**
+     * Applies a partial update to the stored Employee with the given employeeId, only if it is still at the expected
+     * version
+     *
+     * @param employeeId      the id of the Employee to update
+     * @param patch           the changes to apply
+     * @param expectedVersion the version the stored Employee must be at
+     * @return the reports the update actually added to and removed from the directReports, or null if the Employee
+     * does not exist or is at another version
+     */
+    EmployeePatch patchByEmployeeId(String employeeId, EmployeePatch patch, long expectedVersion);
+
+    /**
+     * Looks up only the version of the stored Employee with the given employeeId, which the employeeId and version
+     * index answers without fetching the document
+     *
+     * @param employeeId the id of the Employee
+     * @return the version, 0 for an Employee stored before it had one, or null if there is no such Employee
+     */
+    Long findVersionByEmployeeId(String employeeId);
+
+    /**
+     * Finds the Employee with the given employeeId, only reading the given fields of it from storage
+     *
+     * @param employeeId the id of the Employee to find
+     * @param fields     the names of the fields to read, employeeId and the version are always read
+     * @return the Employee found with only those fields set, or null if there is no such Employee
+     */
+    Employee findFieldsByEmployeeId(String employeeId, Collection<String> fields);
+
+    /**
+     * Finds the Employees with the given employeeIds, only reading the given fields of them from storage
+     *
+     * @param employeeIds the ids of the Employees to find
+     * @param fields      the names of the fields to read, employeeId and the version are always read
+     * @return the Employees found with only those fields set
+     */
+    List<Employee> findFieldsByEmployeeIdIn(Collection<String> employeeIds, Collection<String> fields);
+
+    /**
+     * Streams every stored Employee through a cursor, only reading the given fields of each from storage, so they can
+     * all be gone through without holding them in memory at once
+     *
+     * @param fields the names of the fields to read, employeeId and the version are always read
+     * @return the Employees with only those fields set, which must be closed once done with
+     */
+    CloseableIterator<Employee> streamFields(Collection<String> fields);
+
+    /**
+     * Looks up only the stored numberOfReports of the Employees with the given employeeIds, which the employeeId and
+     * numberOfReports index answers without fetching the documents
+     *
+     * @param employeeIds the ids of the Employees
+     * @return the numberOfReports of every Employee found keyed by employeeId, null for an Employee whose
+     * numberOfReports has not been computed yet
+     */
+    Map<String, Integer> findNumberOfReportsByEmployeeIdIn(Collection<String> employeeIds);
+
+    /**
+     * Finds the Employees that list any of the given Employees among their directReports
+     *
+     * @param employeeIds the ids of the reports
+     * @return the employeeIds of their managers
+     */
+    List<String> findManagerIdsByDirectReportIdIn(Collection<String> employeeIds);
+
+    /**
+     * Adds to the stored numberOfReports of every one of the given Employees in a single update. Employees whose
+     * numberOfReports has not been computed yet are left alone. The Employees' versions are not changed since their
+     * representation is not.
+     *
+     * @param employeeIds the ids of the Employees to update
+     * @param delta       the change in their numberOfReports
+     * @return the number of Employees updated
+     */
+    long incrementNumberOfReports(Collection<String> employeeIds, int delta);
+
+    /**
+     * Clears the stored numberOfReports of the given Employees, for when the change to it can't be worked out
+     *
+     * @param employeeIds the ids of the Employees to update
+     */
+    void unsetNumberOfReports(Collection<String> employeeIds);
+
+    /**
+     * Stores the numberOfReports of each of the given Employees, each only if its stored numberOfReports is still the
+     * one expected, so a write that raced with the caller's read is not overwritten
+     *
+     * @param numberOfReports         the numberOfReports to store keyed by employeeId
+     * @param expectedNumberOfReports the numberOfReports each Employee must still have stored, a missing or null value
+     *                                meaning it has none yet
+     * @return the number of Employees updated
+     */
+    long replaceNumberOfReports(Map<String, Integer> numberOfReports, Map<String, Integer> expectedNumberOfReports);
+}
@@ -0,0 +1,315 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+    private static final Set<String> DIRECT_REPORTS = Collections.singleton("directReports");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Replaces the stored Employee's fields, unsetting directReports rather than storing null so that later patches can
+     * add to it. Only the directReports and version the Employee had before are returned from the update, and the new
+     * version is worked out from the old one the same way the update increments it.
+     */
+    @Override
+    public Employee upsertByEmployeeId(Employee employee) {
+        Employee previous = mongoTemplate.findAndModify(directReportsOf(employee.getEmployeeId()),
+                replacement(employee), options().upsert(true), Employee.class);
+        employee.setVersion(previous == null ? 1L : version(previous) + 1);
+        return previous;
+    }
+
+    /**
+     * Replaces the stored Employee's fields with one update conditioned on its version, which the update also
+     * increments
+     */
+    @Override
+    public Employee replaceByEmployeeId(Employee employee, long expectedVersion) {
+        Employee previous = mongoTemplate.findAndModify(
+                projected(atVersion(employee.getEmployeeId(), expectedVersion), DIRECT_REPORTS),
+                replacement(employee), Employee.class);
+        if (previous != null) {
+            employee.setVersion(expectedVersion + 1);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Applies the patch the same way as a patch at an expected version, at the version the Employee is read at. A
+     * write landing between the read and the update makes the update miss, so the patch is retried against the new
+     * version until it applies, leaving it a single write with a single version increment.
+     */
+    @Override
+    public EmployeePatch patchByEmployeeId(String employeeId, EmployeePatch patch) {
+        while (true) {
+            Employee stored = mongoTemplate.findOne(directReportsOf(employeeId), Employee.class);
+            if (stored == null) {
+                return null;
+            }
+
+            EmployeePatch change = patchAt(employeeId, patch, version(stored), stored);
+            if (change != null) {
+                return change;
+            }
+        }
+    }
+
+    /**
+     * Sets only the fields the patch changes, in one update conditioned on the version, which the update also
+     * increments. A patch to the directReports works out the new list from the stored one first, the version condition
+     * making sure it has not changed by the time the list is set.
+     */
+    @Override
+    public EmployeePatch patchByEmployeeId(String employeeId, EmployeePatch patch, long expectedVersion) {
+        Employee stored = null;
+        if (changesDirectReports(patch)) {
+            stored = mongoTemplate.findOne(projected(atVersion(employeeId, expectedVersion), DIRECT_REPORTS),
+                    Employee.class);
+            if (stored == null) {
+                return null;
+            }
+        }
+
+        return patchAt(employeeId, patch, expectedVersion, stored);
+    }
+
+    @Override
+    public Long findVersionByEmployeeId(String employeeId) {
+        Query byEmployeeId = query(where("employeeId").is(employeeId));
+        byEmployeeId.fields().include("version").exclude("_id");
+
+        Document stored = mongoTemplate.findOne(byEmployeeId, Document.class,
+                mongoTemplate.getCollectionName(Employee.class));
+        if (stored == null) {
+            return null;
+        }
+
+        Number version = (Number) stored.get("version");
+        return version == null ? 0L : version.longValue();
+    }
+
+    @Override
+    public Employee findFieldsByEmployeeId(String employeeId, Collection<String> fields) {
+        return mongoTemplate.findOne(projected(query(where("employeeId").is(employeeId)), fields), Employee.class);
+    }
+
+    @Override
+    public List<Employee> findFieldsByEmployeeIdIn(Collection<String> employeeIds, Collection<String> fields) {
+        return mongoTemplate.find(projected(query(where("employeeId").in(employeeIds)), fields), Employee.class);
+    }
+
+    @Override
+    public CloseableIterator<Employee> streamFields(Collection<String> fields) {
+        return mongoTemplate.stream(projected(new Query(), fields), Employee.class);
+    }
+
+    @Override
+    public Map<String, Integer> findNumberOfReportsByEmployeeIdIn(Collection<String> employeeIds) {
+        Query byEmployeeIds = query(where("employeeId").in(employeeIds));
+        byEmployeeIds.fields().include("employeeId").include("numberOfReports").exclude("_id");
+
+        Map<String, Integer> numberOfReports = new HashMap<>();
+        for (Document stored : mongoTemplate.find(byEmployeeIds, Document.class, collectionName())) {
+            Number storedNumberOfReports = (Number) stored.get("numberOfReports");
+            numberOfReports.put(stored.getString("employeeId"),
+                    storedNumberOfReports == null ? null : storedNumberOfReports.intValue());
+        }
+
+        return numberOfReports;
+    }
+
+    @Override
+    public List<String> findManagerIdsByDirectReportIdIn(Collection<String> employeeIds) {
+        Query byDirectReports = query(where("directReports.employeeId").in(employeeIds));
+        byDirectReports.fields().include("employeeId").exclude("_id");
+
+        List<String> managerIds = new ArrayList<>();
+        for (Document manager : mongoTemplate.find(byDirectReports, Document.class, collectionName())) {
+            managerIds.add(manager.getString("employeeId"));
+        }
+
+        return managerIds;
+    }
+
+    /**
+     * Updates through the collection name rather than the Employee class, so the template does not increment the
+     * versions
+     */
+    @Override
+    public long incrementNumberOfReports(Collection<String> employeeIds, int delta) {
+        return mongoTemplate.updateMulti(query(where("employeeId").in(employeeIds).and("numberOfReports").exists(true)),
+                new Update().inc("numberOfReports", delta), collectionName())
+                .getModifiedCount();
+    }
+
+    @Override
+    public void unsetNumberOfReports(Collection<String> employeeIds) {
+        mongoTemplate.updateMulti(query(where("employeeId").in(employeeIds)), new Update().unset("numberOfReports"),
+                collectionName());
+    }
+
+    @Override
+    public long replaceNumberOfReports(Map<String, Integer> numberOfReports,
+                                       Map<String, Integer> expectedNumberOfReports) {
+        if (numberOfReports.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collectionName());
+        for (Map.Entry<String, Integer> entry : numberOfReports.entrySet()) {
+            Integer expected = expectedNumberOfReports.get(entry.getKey());
+            bulkOperations.updateOne(query(where("employeeId").is(entry.getKey())
+                            .and("numberOfReports").is(expected)),
+                    new Update().set("numberOfReports", entry.getValue()));
+        }
+
+        return bulkOperations.execute().getModifiedCount();
+    }
+
+    private String collectionName() {
+        return mongoTemplate.getCollectionName(Employee.class);
+    }
+
+    /**
+     * Matches the Employee with the given employeeId, returning only its directReports and version
+     */
+    private static Query directReportsOf(String employeeId) {
+        return projected(query(where("employeeId").is(employeeId)), DIRECT_REPORTS);
+    }
+
+    /**
+     * Limits the documents a query returns to the given fields, along with the employeeId and version every read needs
+     */
+    private static Query projected(Query query, Collection<String> fields) {
+        query.fields().include("employeeId").include("version");
+        for (String field : fields) {
+            query.fields().include(field);
+        }
+
+        return query;
+    }
+
+    private static Update replacement(Employee employee) {
+        Update update = new Update().set("firstName", employee.getFirstName())
+                .set("lastName", employee.getLastName())
+                .set("position", employee.getPosition())
+                .set("department", employee.getDepartment());
+        if (employee.getDirectReports() == null) {
+            update.unset("directReports");
+        } else {
+            update.set("directReports", employee.getDirectReports());
+        }
+
+        return update;
+    }
+
+    /**
+     * Matches the Employee only at the given version, version 0 also matching an Employee stored before it had one
+     */
+    private static Query atVersion(String employeeId, long version) {
+        return query(where("employeeId").is(employeeId)
+                .and("version").in(version == 0 ? Arrays.asList(0L, null) : Collections.singletonList(version)));
+    }
+
+    /**
+     * Sets the fields other than the directReports that the patch changes
+     */
+    private static Update fieldUpdate(EmployeePatch patch) {
+        Update update = new Update();
+        setIfPresent(update, "firstName", patch.getFirstName());
+        setIfPresent(update, "lastName", patch.getLastName());
+        setIfPresent(update, "position", patch.getPosition());
+        setIfPresent(update, "department", patch.getDepartment());
+
+        return update;
+    }
+
+    private static long version(Employee stored) {
+        return stored.getVersion() == null ? 0L : stored.getVersion();
+    }
+
+    private static Set<String> reportIds(Employee stored) {
+        Set<String> reportIds = new LinkedHashSet<>();
+        if (stored.getDirectReports() != null) {
+            for (Employee report : stored.getDirectReports()) {
+                reportIds.add(report.getEmployeeId());
+            }
+        }
+
+        return reportIds;
+    }
+
+    private static EmployeePatch directReportsChange(Collection<String> added, Collection<String> removed) {
+        EmployeePatch change = new EmployeePatch();
+        change.setAddDirectReports(new ArrayList<>(added));
+        change.setRemoveDirectReports(new ArrayList<>(removed));
+        return change;
+    }
+
+    private static void setIfPresent(Update update, String key, Object value) {
+        if (value != null) {
+            update.set(key, value);
+        }
+    }
+
+    /**
+     * Writes the patch to the Employee if it is still at the given version
+     *
+     * @param stored the Employee's directReports at that version, only needed when the patch changes them
+     * @return the reports the patch added and removed, or null if the Employee does not exist or is at another version
+     */
+    private EmployeePatch patchAt(String employeeId, EmployeePatch patch, long version, Employee stored) {
+        Update update = fieldUpdate(patch);
+        Set<String> previousReportIds = Collections.emptySet();
+        Set<String> patchedReportIds = Collections.emptySet();
+        if (changesDirectReports(patch)) {
+            previousReportIds = reportIds(stored);
+            List<Employee> directReports = patch.applyTo(stored).getDirectReports();
+            patchedReportIds = reportIds(stored);
+            if (directReports == null) {
+                update.unset("directReports");
+            } else {
+                update.set("directReports", directReports);
+            }
+        }
+
+        if (mongoTemplate.updateFirst(atVersion(employeeId, version), update, Employee.class).getMatchedCount() == 0) {
+            return null;
+        }
+
+        Set<String> added = new LinkedHashSet<>(patchedReportIds);
+        added.removeAll(previousReportIds);
+        Set<String> removed = new LinkedHashSet<>(previousReportIds);
+        removed.removeAll(patchedReportIds);
+        return directReportsChange(added, removed);
+    }
+
+    private static boolean changesDirectReports(EmployeePatch patch) {
+        return patch.getAddDirectReports() != null || patch.getRemoveDirectReports() != null;
+    }
+}
@@ -0,0 +1,754 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.PayrollRollup;
+import com.mindex.challenge.data.ReportsPage;
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the reporting hierarchy kept alongside the {@link EmployeeRepository}.
+ * <p>
+ * Every employeeId is assigned a dense int id, and the hierarchy is stored as primitive adjacency arrays indexed by
+ * those ids, along with the parent of each employee and the total number of reports under each employee. The salary of
+ * each employee's most recent Compensation is kept too, along with the total and count of those salaries across the
+ * employee and everyone under them. These subtree aggregates are maintained incrementally on every write by applying
+ * the change in an employee's direct reports or salary up their chain of managers, so looking one up is constant time.
+ * When the hierarchy stops being a forest (an employee with more than one manager, or a cycle) the aggregates are
+ * recomputed in full the next time one is read, and are not handed out until the hierarchy is a forest again since they
+ * would count some reports more than once.
+ * <p>
+ * Each employee is also labelled with its position in a pre-order walk of the hierarchy and the position of the last
+ * employee under it, so the employees under any employee are the contiguous run of positions between the two. That
+ * makes checking whether one employee is under another constant time, and listing a page of an employee's reports a
+ * slice of the walk. Any change to the hierarchy invalidates the labels, which are rebuilt in a single walk the next
+ * time they are read.
+ * <p>
+ * The report counts here are only this instance's, so they are not the numberOfReports the service hands out. That is
+ * the count stored on each Employee, which every instance shares, and the counts here only stand in for an Employee
+ * whose stored count is not known yet.
+ */
+@Component
+public class OrgGraphIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(OrgGraphIndex.class);
+
+    private static final int NO_PARENT = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private CompensationRepository compensationRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> denseIds = new HashMap<>();
+
+    private String[] employeeIds;
+
+    /**
+     * The stored Employee for each dense id without its directReports, null until the Employee itself is indexed
+     */
+    private Employee[] employees;
+
+    /**
+     * The dense ids of each Employee's direct reports, null when the Employee has no directReports list
+     */
+    private int[][] directReports;
+
+    private int[] parents;
+
+    private int[] reportCounts;
+
+    /**
+     * The salary of each Employee's most recent Compensation, null when the Employee has none
+     */
+    private BigDecimal[] salaries;
+
+    private LocalDate[] salaryEffectiveDates;
+
+    private String[] salaryCompensationIds;
+
+    /**
+     * The total of the salaries of each Employee and everyone under them
+     */
+    private BigDecimal[] subtreePayrolls;
+
+    /**
+     * The number of salaries in each Employee's subtreePayroll
+     */
+    private int[] subtreeCompensatedCounts;
+
+    /**
+     * The position of each Employee in a pre-order walk of the hierarchy
+     */
+    private int[] preorderLabels;
+
+    /**
+     * The pre-order position of the last Employee under each Employee, or its own position if it has no reports
+     */
+    private int[] subtreeEndLabels;
+
+    /**
+     * The dense id of the Employee at each pre-order position
+     */
+    private int[] preorder;
+
+    private int size;
+
+    private boolean forest;
+
+    private boolean aggregatesStale;
+
+    private boolean labelsStale;
+
+    public OrgGraphIndex() {
+        clear();
+    }
+
+    /**
+     * Rebuilds the index from every Employee and Compensation in the repositories, run once startup has finished
+     * bootstrapping data
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        LOG.debug("Building org graph index");
+
+        rebuild(employeeRepository.findAll(), compensationRepository.findAll());
+
+        LOG.debug("Built org graph index with [{}] employees", size);
+    }
+
+    /**
+     * Replaces the contents of the index with the given Employees, without any Compensations
+     *
+     * @param employees every Employee in the hierarchy
+     */
+    public void rebuild(Iterable<Employee> employees) {
+        rebuild(employees, Collections.emptyList());
+    }
+
+    /**
+     * Replaces the contents of the index with the given Employees and Compensations
+     *
+     * @param employees     every Employee in the hierarchy
+     * @param compensations every Compensation, only the most recent one for each Employee is kept
+     */
+    public void rebuild(Iterable<Employee> employees, Iterable<Compensation> compensations) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            aggregatesStale = true;
+            for (Employee employee : employees) {
+                index(employee);
+            }
+            for (Compensation compensation : compensations) {
+                index(compensation);
+            }
+            recomputeAggregates();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the given Employee in the index, applying any change in its direct reports to the report counts
+     * of the Employee and all of its managers. Writes can reach the index in a different order than they were stored
+     * in, so an Employee at an older version than the one already indexed is ignored.
+     *
+     * @param employee the Employee that was written
+     */
+    public void put(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            index(employee);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a new Compensation to the payroll of its Employee and all of its managers, if it is more recent than the
+     * one already indexed for the Employee
+     *
+     * @param compensation the Compensation that was created
+     */
+    public void put(Compensation compensation) {
+        lock.writeLock().lock();
+        try {
+            index(compensation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up the total number of reports under the Employee with the given id
+     *
+     * @param employeeId the id of the Employee
+     * @return the number of reports under the Employee, or null if the Employee is not indexed or the hierarchy is not
+     * a forest
+     */
+    public Integer getNumberOfReports(String employeeId) {
+        return lookupAggregate(employeeId, node -> reportCounts[node]);
+    }
+
+    /**
+     * Looks up the payroll of the Employee with the given id and everyone under them
+     *
+     * @param employeeId the id of the Employee
+     * @return the headcount and salary totals of the Employee's subtree, or null if the Employee is not indexed or the
+     * hierarchy is not a forest
+     */
+    public PayrollRollup getPayrollRollup(String employeeId) {
+        return lookupAggregate(employeeId, node -> {
+            int compensatedCount = subtreeCompensatedCounts[node];
+            BigDecimal meanSalary = compensatedCount == 0
+                    ? null
+                    : subtreePayrolls[node].divide(BigDecimal.valueOf(compensatedCount), 2, RoundingMode.HALF_EVEN);
+
+            return new PayrollRollup(employeeId, reportCounts[node] + 1, compensatedCount, subtreePayrolls[node],
+                    meanSalary);
+        });
+    }
+
+    /**
+     * Finds every Employee above the Employee with the given id by following the indexed managers up the hierarchy
+     *
+     * @param employeeId the id of the Employee
+     * @return the ids of its managers, nearest first, or null if the hierarchy is not a forest
+     */
+    public List<String> findManagerIds(String employeeId) {
+        return read(false, () -> {
+            if (!forest) {
+                return null;
+            }
+
+            List<String> managerIds = new ArrayList<>();
+            Integer node = denseIds.get(employeeId);
+            if (node != null) {
+                for (int manager = parents[node]; manager != NO_PARENT; manager = parents[manager]) {
+                    managerIds.add(employeeIds[manager]);
+                }
+            }
+
+            return managerIds;
+        });
+    }
+
+    /**
+     * Checks whether one Employee is anywhere under another
+     *
+     * @param employeeId the id of the Employee that may be a report
+     * @param managerId  the id of the Employee that may be their manager, directly or not
+     * @return whether the Employee is under the manager, or null if either of them is not indexed or the hierarchy is
+     * not a forest
+     */
+    public Boolean isReportOf(String employeeId, String managerId) {
+        return read(true, () -> {
+            Integer node = denseIds.get(employeeId);
+            Integer manager = denseIds.get(managerId);
+            if (node == null || manager == null || employees[manager] == null || !forest) {
+                return null;
+            }
+
+            return isUnder(node, manager);
+        });
+    }
+
+    /**
+     * Finds a page of every Employee under a manager, in the order of a pre-order walk following the order of each
+     * Employee's directReports. Each Employee returned is a copy whose directReports only have their employeeId set,
+     * and reports that are listed as a directReport but not indexed themselves only have their employeeId set.
+     *
+     * @param managerId     the id of the manager
+     * @param afterReportId the id of the last report on the previous page, or null for the first page
+     * @param limit         the maximum number of reports on the page
+     * @return the page of reports, or null if the manager is not indexed or the hierarchy is not a forest
+     * @throws IllegalArgumentException if afterReportId is not under the manager
+     */
+    public ReportsPage findReports(String managerId, String afterReportId, int limit) {
+        return read(true, () -> {
+            Integer manager = denseIds.get(managerId);
+            if (manager == null || employees[manager] == null || !forest) {
+                return null;
+            }
+
+            int from = preorderLabels[manager] + 1;
+            if (afterReportId != null) {
+                Integer after = denseIds.get(afterReportId);
+                if (after == null || !isUnder(after, manager)) {
+                    throw new IllegalArgumentException("Invalid cursor: " + afterReportId);
+                }
+                from = preorderLabels[after] + 1;
+            }
+
+            int end = subtreeEndLabels[manager] + 1;
+            int to = (int) Math.min((long) from + limit, end);
+            List<Employee> reports = new ArrayList<>(Math.max(0, to - from));
+            for (int label = from; label < to; label++) {
+                reports.add(toReport(preorder[label]));
+            }
+
+            return new ReportsPage(reports, to < end ? employeeIds[preorder[to - 1]] : null);
+        });
+    }
+
+    /**
+     * Finds the indexed Employees with the given ids. Each Employee returned is a copy whose directReports only have
+     * their employeeId set, like the stored documents.
+     *
+     * @param ids the ids of the Employees to find
+     * @return the Employees found keyed by employeeId, ids that are not indexed are left out
+     */
+    public Map<String, Employee> findAll(Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, Employee> found = new HashMap<>();
+            for (String id : ids) {
+                Integer node = denseIds.get(id);
+                if (node != null && employees[node] != null) {
+                    found.put(id, toEmployee(node));
+                }
+            }
+
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T lookupAggregate(String employeeId, IntFunction<T> aggregate) {
+        return read(false, () -> lookupIndexedAggregate(employeeId, aggregate));
+    }
+
+    /**
+     * Reads from the index under the read lock, switching to the write lock to recompute the subtree aggregates first
+     * if they are stale, along with the labels if the read needs them and the hierarchy is a forest
+     */
+    private <T> T read(boolean labelled, Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            if (!aggregatesStale && !(labelled && labelsStale)) {
+                return reader.get();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (aggregatesStale) {
+                recomputeAggregates();
+            }
+            if (labelled && labelsStale && forest) {
+                relabel();
+            }
+
+            return reader.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T lookupIndexedAggregate(String employeeId, IntFunction<T> aggregate) {
+        Integer node = denseIds.get(employeeId);
+        if (node == null || employees[node] == null || !forest) {
+            return null;
+        }
+
+        return aggregate.apply(node);
+    }
+
+    private boolean isUnder(int node, int manager) {
+        return preorderLabels[manager] < preorderLabels[node] && preorderLabels[node] <= subtreeEndLabels[manager];
+    }
+
+    private Employee toReport(int node) {
+        if (employees[node] != null) {
+            return toEmployee(node);
+        }
+
+        Employee reportStub = new Employee();
+        reportStub.setEmployeeId(employeeIds[node]);
+        return reportStub;
+    }
+
+    private Employee toEmployee(int node) {
+        Employee employee = new Employee(employees[node]);
+        int[] reports = directReports[node];
+        if (reports != null) {
+            List<Employee> reportStubs = new ArrayList<>(reports.length);
+            for (int report : reports) {
+                Employee reportStub = new Employee();
+                reportStub.setEmployeeId(employeeIds[report]);
+                reportStubs.add(reportStub);
+            }
+            employee.setDirectReports(reportStubs);
+        }
+
+        return employee;
+    }
+
+    private void index(Employee employee) {
+        int node = denseId(employee.getEmployeeId());
+        Employee indexed = employees[node];
+        if (indexed != null && indexed.getVersion() != null && employee.getVersion() != null
+                && employee.getVersion() < indexed.getVersion()) {
+            LOG.debug("Ignoring employee [{}] at version [{}], version [{}] is already indexed",
+                    employee.getEmployeeId(), employee.getVersion(), indexed.getVersion());
+            return;
+        }
+
+        Employee record = new Employee(employee);
+        record.setDirectReports(null);
+        employees[node] = record;
+
+        int[] oldReports = directReports[node];
+        int[] newReports = null;
+        if (employee.getDirectReports() != null) {
+            newReports = new int[employee.getDirectReports().size()];
+            for (int i = 0; i < newReports.length; i++) {
+                newReports[i] = denseId(employee.getDirectReports().get(i).getEmployeeId());
+            }
+        }
+
+        if (Arrays.equals(oldReports, newReports)) {
+            return;
+        }
+
+        labelsStale = true;
+        int reportCountDelta = reportCountContribution(newReports) - reportCountContribution(oldReports);
+        BigDecimal payrollDelta = payrollContribution(newReports).subtract(payrollContribution(oldReports));
+        int compensatedCountDelta = compensatedCountContribution(newReports)
+                - compensatedCountContribution(oldReports);
+        boolean relinked = relink(node, oldReports, newReports);
+        directReports[node] = newReports;
+
+        if (aggregatesStale) {
+            return;
+        }
+
+        if (!forest || !relinked) {
+            forest = false;
+            aggregatesStale = true;
+            return;
+        }
+
+        applyUpChain(node, reportCountDelta, payrollDelta, compensatedCountDelta);
+    }
+
+    private void index(Compensation compensation) {
+        if (compensation.getEmployeeId() == null || compensation.getSalary() == null) {
+            return;
+        }
+
+        int node = denseId(compensation.getEmployeeId());
+        if (salaries[node] != null && isBefore(compensation.getEffectiveDate(), compensation.getId(),
+                salaryEffectiveDates[node], salaryCompensationIds[node])) {
+            return;
+        }
+
+        BigDecimal payrollDelta = salaries[node] == null
+                ? compensation.getSalary()
+                : compensation.getSalary().subtract(salaries[node]);
+        int compensatedCountDelta = salaries[node] == null ? 1 : 0;
+        salaries[node] = compensation.getSalary();
+        salaryEffectiveDates[node] = compensation.getEffectiveDate();
+        salaryCompensationIds[node] = compensation.getId();
+
+        if (aggregatesStale) {
+            return;
+        }
+
+        if (!forest) {
+            aggregatesStale = true;
+            return;
+        }
+
+        applyUpChain(node, 0, payrollDelta, compensatedCountDelta);
+    }
+
+    private void applyUpChain(int node, int reportCountDelta, BigDecimal payrollDelta, int compensatedCountDelta) {
+        for (int manager = node; manager != NO_PARENT; manager = parents[manager]) {
+            reportCounts[manager] += reportCountDelta;
+            subtreePayrolls[manager] = subtreePayrolls[manager].add(payrollDelta);
+            subtreeCompensatedCounts[manager] += compensatedCountDelta;
+        }
+    }
+
+    /**
+     * Orders Compensations by effectiveDate then id, the same order the repository finds the latest Compensation in.
+     * Null effectiveDates are treated as earlier than any other date
+     */
+    private static boolean isBefore(LocalDate effectiveDate, String id, LocalDate otherEffectiveDate, String otherId) {
+        if (Objects.equals(effectiveDate, otherEffectiveDate)) {
+            return ObjectUtils.compare(id, otherId) < 0;
+        }
+
+        if (effectiveDate == null) {
+            return true;
+        }
+
+        return otherEffectiveDate != null && effectiveDate.isBefore(otherEffectiveDate);
+    }
+
+    /**
+     * Points the parents of the node's old and new direct reports at the right manager
+     *
+     * @return false if the new direct reports would make the hierarchy something other than a forest
+     */
+    private boolean relink(int node, int[] oldReports, int[] newReports) {
+        if (oldReports != null) {
+            for (int report : oldReports) {
+                if (parents[report] == node) {
+                    parents[report] = NO_PARENT;
+                }
+            }
+        }
+
+        boolean stillForest = true;
+        if (newReports != null) {
+            for (int report : newReports) {
+                if (parents[report] != NO_PARENT || isSelfOrManagerOf(report, node)) {
+                    stillForest = false;
+                }
+                parents[report] = node;
+            }
+        }
+
+        return stillForest;
+    }
+
+    private boolean isSelfOrManagerOf(int candidate, int node) {
+        int steps = 0;
+        for (int manager = node; manager != NO_PARENT && steps <= size; manager = parents[manager], steps++) {
+            if (manager == candidate) {
+                return true;
+            }
+        }
+
+        return steps > size;
+    }
+
+    private int reportCountContribution(int[] reports) {
+        int contribution = 0;
+        if (reports != null) {
+            for (int report : reports) {
+                contribution += 1 + reportCounts[report];
+            }
+        }
+
+        return contribution;
+    }
+
+    private BigDecimal payrollContribution(int[] reports) {
+        BigDecimal contribution = BigDecimal.ZERO;
+        if (reports != null) {
+            for (int report : reports) {
+                contribution = contribution.add(subtreePayrolls[report]);
+            }
+        }
+
+        return contribution;
+    }
+
+    private int compensatedCountContribution(int[] reports) {
+        int contribution = 0;
+        if (reports != null) {
+            for (int report : reports) {
+                contribution += subtreeCompensatedCounts[report];
+            }
+        }
+
+        return contribution;
+    }
+
+    /**
+     * Recomputes every subtree aggregate with an iterative post-order walk of the hierarchy, ignoring any edge that
+     * closes a cycle, and records whether the hierarchy is a forest again
+     */
+    private void recomputeAggregates() {
+        final int unvisited = 0;
+        final int inProgress = 1;
+        final int done = 2;
+
+        int[] state = new int[size];
+        int[] cursor = new int[size];
+        int[] managerCounts = new int[size];
+        int[] stack = new int[size];
+        boolean cyclic = false;
+
+        Arrays.fill(parents, 0, size, NO_PARENT);
+        for (int root = 0; root < size; root++) {
+            if (state[root] != unvisited) {
+                continue;
+            }
+
+            int top = 0;
+            stack[top] = root;
+            state[root] = inProgress;
+            resetAggregates(root);
+            while (top >= 0) {
+                int node = stack[top];
+                int[] reports = directReports[node];
+                if (reports != null && cursor[node] < reports.length) {
+                    int report = reports[cursor[node]++];
+                    parents[report] = node;
+                    managerCounts[report]++;
+                    if (state[report] == unvisited) {
+                        state[report] = inProgress;
+                        resetAggregates(report);
+                        stack[++top] = report;
+                    } else if (state[report] == done) {
+                        addAggregates(node, report);
+                    } else {
+                        cyclic = true;
+                    }
+                } else {
+                    state[node] = done;
+                    top--;
+                    if (top >= 0) {
+                        addAggregates(stack[top], node);
+                    }
+                }
+            }
+        }
+
+        forest = !cyclic;
+        for (int node = 0; node < size && forest; node++) {
+            forest = managerCounts[node] <= 1;
+        }
+
+        if (cyclic) {
+            LOG.warn("Reporting hierarchy contains a cycle, report counts and payrolls exclude the edges that close "
+                    + "it");
+        }
+
+        aggregatesStale = false;
+    }
+
+    /**
+     * Labels every Employee with an iterative pre-order walk from each root of the hierarchy, which must be a forest
+     */
+    private void relabel() {
+        preorderLabels = new int[size];
+        subtreeEndLabels = new int[size];
+        preorder = new int[size];
+        int[] cursor = new int[size];
+        int[] stack = new int[size];
+        int label = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (parents[root] != NO_PARENT) {
+                continue;
+            }
+
+            int top = 0;
+            stack[top] = root;
+            preorderLabels[root] = label;
+            preorder[label++] = root;
+            while (top >= 0) {
+                int node = stack[top];
+                int[] reports = directReports[node];
+                if (reports != null && cursor[node] < reports.length) {
+                    int report = reports[cursor[node]++];
+                    preorderLabels[report] = label;
+                    preorder[label++] = report;
+                    stack[++top] = report;
+                } else {
+                    subtreeEndLabels[node] = label - 1;
+                    top--;
+                }
+            }
+        }
+
+        labelsStale = false;
+    }
+
+    private void resetAggregates(int node) {
+        reportCounts[node] = 0;
+        subtreePayrolls[node] = salaries[node] == null ? BigDecimal.ZERO : salaries[node];
+        subtreeCompensatedCounts[node] = salaries[node] == null ? 0 : 1;
+    }
+
+    private void addAggregates(int manager, int report) {
+        reportCounts[manager] += 1 + reportCounts[report];
+        subtreePayrolls[manager] = subtreePayrolls[manager].add(subtreePayrolls[report]);
+        subtreeCompensatedCounts[manager] += subtreeCompensatedCounts[report];
+    }
+
+    private int denseId(String employeeId) {
+        Integer node = denseIds.get(employeeId);
+        if (node != null) {
+            return node;
+        }
+
+        if (size == employeeIds.length) {
+            int capacity = size * 2;
+            employeeIds = Arrays.copyOf(employeeIds, capacity);
+            employees = Arrays.copyOf(employees, capacity);
+            directReports = Arrays.copyOf(directReports, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            reportCounts = Arrays.copyOf(reportCounts, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            salaryEffectiveDates = Arrays.copyOf(salaryEffectiveDates, capacity);
+            salaryCompensationIds = Arrays.copyOf(salaryCompensationIds, capacity);
+            subtreePayrolls = Arrays.copyOf(subtreePayrolls, capacity);
+            subtreeCompensatedCounts = Arrays.copyOf(subtreeCompensatedCounts, capacity);
+        }
+
+        node = size++;
+        labelsStale = true;
+        denseIds.put(employeeId, node);
+        employeeIds[node] = employeeId;
+        parents[node] = NO_PARENT;
+        subtreePayrolls[node] = BigDecimal.ZERO;
+
+        return node;
+    }
+
+    private void clear() {
+        denseIds.clear();
+        employeeIds = new String[INITIAL_CAPACITY];
+        employees = new Employee[INITIAL_CAPACITY];
+        directReports = new int[INITIAL_CAPACITY][];
+        parents = new int[INITIAL_CAPACITY];
+        reportCounts = new int[INITIAL_CAPACITY];
+        salaries = new BigDecimal[INITIAL_CAPACITY];
+        salaryEffectiveDates = new LocalDate[INITIAL_CAPACITY];
+        salaryCompensationIds = new String[INITIAL_CAPACITY];
+        subtreePayrolls = new BigDecimal[INITIAL_CAPACITY];
+        subtreeCompensatedCounts = new int[INITIAL_CAPACITY];
+        preorderLabels = new int[0];
+        subtreeEndLabels = new int[0];
+        preorder = new int[0];
+        size = 0;
+        forest = true;
+        aggregatesStale = false;
+        labelsStale = true;
+    }
+}
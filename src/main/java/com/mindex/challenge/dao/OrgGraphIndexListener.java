@@ -0,0 +1,22 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link OrgGraphIndex} up to date with every Employee written through the {@link EmployeeRepository}
+ */
+@Component
+public class OrgGraphIndexListener extends AbstractMongoEventListener<Employee> {
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Employee> event) {
+        orgGraphIndex.put(event.getSource());
+    }
+}
@@ -0,0 +1,224 @@
+package com.mindex.challenge.dao.inprocess;
+
+import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.data.Compensation;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * {@link CompensationRepository} that keeps each Employee's Compensations in a concurrent map keyed by employeeId
+ * rather than sending every call to the Mongo server, used under the "in-process" profile.
+ * <p>
+ * Each Employee's Compensations are held in an immutable list, sorted by effectiveDate then id, that is replaced on
+ * every write, so reads never lock and the date lookups are binary searches. Compensations are only kept by employeeId,
+ * so the id based lookups scan every Compensation.
+ */
+@Repository
+@Primary
+@Profile("in-process")
+public class InProcessCompensationRepository extends InProcessRepository<Compensation>
+        implements CompensationRepository {
+
+    /**
+     * Order of each Employee's Compensations, a null id sorts after every other id so it can be used to find the end of
+     * an effectiveDate
+     */
+    private static final Comparator<Compensation> ORDER = Comparator.comparing(Compensation::getEffectiveDate,
+            Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+            .thenComparing(Compensation::getId, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+    private final ConcurrentMap<String, List<Compensation>> compensations = new ConcurrentHashMap<>();
+
+    /**
+     * Finds the Employee's Compensation with the latest effectiveDate, the one with the greatest id wins a tie
+     */
+    @Override
+    public Compensation findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(String employeeId) {
+        List<Compensation> employeeCompensations = compensations.getOrDefault(employeeId, Collections.emptyList());
+
+        return employeeCompensations.isEmpty()
+                ? null
+                : copy(employeeCompensations.get(employeeCompensations.size() - 1));
+    }
+
+    @Override
+    public Compensation findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDescIdDesc(
+            String employeeId, LocalDate asOf) {
+        List<Compensation> employeeCompensations = compensations.getOrDefault(employeeId, Collections.emptyList());
+        int position = positionAfter(employeeCompensations, asOf, null);
+        if (position == 0 || employeeCompensations.get(position - 1).getEffectiveDate() == null) {
+            return null;
+        }
+
+        return copy(employeeCompensations.get(position - 1));
+    }
+
+    @Override
+    public List<Compensation> findHistoryPage(String employeeId, LocalDate afterEffectiveDate, String afterId,
+                                              int limit) {
+        List<Compensation> employeeCompensations = compensations.getOrDefault(employeeId, Collections.emptyList());
+        int from = afterId == null ? 0 : positionAfter(employeeCompensations, afterEffectiveDate, afterId);
+        int to = (int) Math.min((long) from + limit, employeeCompensations.size());
+
+        List<Compensation> page = new ArrayList<>(to - from);
+        for (Compensation compensation : employeeCompensations.subList(from, to)) {
+            page.add(copy(compensation));
+        }
+
+        return page;
+    }
+
+    /**
+     * Inserts the Compensation, assigning it an id first if it has none the same way the Mongo driver does, and
+     * starting its version at 0 the way the Mongo repository does
+     */
+    @Override
+    public <S extends Compensation> S insert(S compensation) {
+        if (compensation.getId() == null) {
+            compensation.setId(new ObjectId().toHexString());
+        }
+        if (compensation.getVersion() == null) {
+            compensation.setVersion(0L);
+        }
+
+        Compensation copy = copy(compensation);
+        compensations.compute(employeeId(compensation), (employeeId, employeeCompensations) -> {
+            List<Compensation> inserted = employeeCompensations == null
+                    ? new ArrayList<>(1)
+                    : new ArrayList<>(employeeCompensations);
+            inserted.add(positionAfter(inserted, copy.getEffectiveDate(), copy.getId()), copy);
+
+            return Collections.unmodifiableList(inserted);
+        });
+
+        return compensation;
+    }
+
+    /**
+     * Inserts the Compensation, Compensations are never replaced in-process
+     */
+    @Override
+    public <S extends Compensation> S save(S compensation) {
+        return insert(compensation);
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (List<Compensation> employeeCompensations : compensations.values()) {
+            count += employeeCompensations.size();
+        }
+
+        return count;
+    }
+
+    @Override
+    public void delete(Compensation compensation) {
+        remove(employeeId(compensation), compensation::equals);
+    }
+
+    @Override
+    public void deleteAll() {
+        compensations.clear();
+    }
+
+    @Override
+    public Optional<Compensation> findById(String id) {
+        Assert.notNull(id, "The given id must not be null!");
+
+        return stored().filter(compensation -> id.equals(compensation.getId()))
+                .findFirst()
+                .map(this::copy);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        findById(id).ifPresent(compensation -> remove(employeeId(compensation),
+                storedCompensation -> id.equals(storedCompensation.getId())));
+    }
+
+    @Override
+    public List<Compensation> findLatestByEmployeeIdIn(Collection<String> employeeIds) {
+        List<Compensation> latest = new ArrayList<>();
+        for (String employeeId : new LinkedHashSet<>(employeeIds)) {
+            Compensation compensation = findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(employeeId);
+            if (compensation != null) {
+                latest.add(compensation);
+            }
+        }
+
+        return latest;
+    }
+
+    @Override
+    protected Stream<Compensation> stored() {
+        return compensations.values()
+                .stream()
+                .flatMap(List::stream);
+    }
+
+    @Override
+    protected Compensation copy(Compensation compensation) {
+        if (compensation == null) {
+            return null;
+        }
+
+        // Like the Mongo repository, only the employeeId of the Employee is kept
+        return compensation.withEmployee(null);
+    }
+
+    /**
+     * Binary searches an Employee's Compensations for the position of the first one ordered after the given
+     * effectiveDate and id, a null id finds the position after every Compensation with that effectiveDate
+     */
+    private static int positionAfter(List<Compensation> employeeCompensations, LocalDate effectiveDate, String id) {
+        Compensation probe = new Compensation();
+        probe.setEffectiveDate(effectiveDate);
+        probe.setId(id);
+
+        int low = 0;
+        int high = employeeCompensations.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ORDER.compare(employeeCompensations.get(middle), probe) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Removes the Employee's Compensations that match, replacing the list the same way an insert does
+     */
+    private void remove(String employeeId, Predicate<Compensation> matches) {
+        compensations.computeIfPresent(employeeId, (id, employeeCompensations) -> {
+            List<Compensation> remaining = new ArrayList<>(employeeCompensations);
+            remaining.removeIf(matches);
+
+            return remaining.isEmpty() ? null : Collections.unmodifiableList(remaining);
+        });
+    }
+
+    private static String employeeId(Compensation compensation) {
+        return compensation.getEmployeeId();
+    }
+}
@@ -0,0 +1,444 @@
+package com.mindex.challenge.dao.inprocess;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * {@link EmployeeRepository} that keeps Employees in a concurrent map keyed by employeeId rather than sending every call
+ * to the Mongo server, used under the "in-process" profile.
+ * <p>
+ * The employeeId doubles as the id, and is unique just like it is with the index on the employee collection. Inserts
+ * and saves publish the same {@link AfterSaveEvent} the Mongo repository does so listeners keep working.
+ */
+@Repository
+@Primary
+@Profile("in-process")
+public class InProcessEmployeeRepository extends InProcessRepository<Employee> implements EmployeeRepository {
+    private static final String COLLECTION_NAME = "employee";
+
+    private static final Set<String> DIRECT_REPORTS = Collections.singleton("directReports");
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentMap<String, Employee> employees = new ConcurrentHashMap<>();
+
+    /**
+     * The employeeIds of the Employees listing each employeeId among their directReports, so managers are looked up
+     * by report rather than by going through every Employee. The sets are replaced rather than modified so they can be
+     * read while they are being written.
+     */
+    private final ConcurrentMap<String, Set<String>> managerIds = new ConcurrentHashMap<>();
+
+    @Override
+    public Employee findByEmployeeId(String employeeId) {
+        return copy(employees.get(employeeId));
+    }
+
+    @Override
+    public List<Employee> findByEmployeeIdIn(Collection<String> employeeIds) {
+        List<Employee> found = new ArrayList<>(employeeIds.size());
+        for (String employeeId : new LinkedHashSet<>(employeeIds)) {
+            Employee employee = employees.get(employeeId);
+            if (employee != null) {
+                found.add(copy(employee));
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public Employee upsertByEmployeeId(Employee employee) {
+        Employee[] previous = new Employee[1];
+        Employee stored = employees.compute(employee.getEmployeeId(), (id, replaced) -> {
+            previous[0] = replaced;
+            return relinked(id, replaced, versioned(copy(employee), replaced));
+        });
+
+        employee.setVersion(stored.getVersion());
+        return previous[0] == null ? null : projected(previous[0], DIRECT_REPORTS);
+    }
+
+    @Override
+    public Employee replaceByEmployeeId(Employee employee, long expectedVersion) {
+        Employee[] previous = new Employee[1];
+        employees.computeIfPresent(employee.getEmployeeId(), (id, stored) -> {
+            if (!isAt(stored, expectedVersion)) {
+                return stored;
+            }
+
+            previous[0] = stored;
+            return relinked(id, stored, versioned(copy(employee), stored));
+        });
+
+        if (previous[0] == null) {
+            return null;
+        }
+
+        employee.setVersion(expectedVersion + 1);
+        return projected(previous[0], DIRECT_REPORTS);
+    }
+
+    /**
+     * Applies the patch to a copy of the stored Employee and swaps it in, like the upsert no event is published
+     */
+    @Override
+    public EmployeePatch patchByEmployeeId(String employeeId, EmployeePatch patch) {
+        Employee[] previous = new Employee[1];
+        Employee patched = employees.computeIfPresent(employeeId, (id, stored) -> {
+            previous[0] = stored;
+            return relinked(id, stored, versioned(patch.applyTo(copy(stored)), stored));
+        });
+
+        return patched == null ? null : directReportsChange(previous[0], patched);
+    }
+
+    @Override
+    public EmployeePatch patchByEmployeeId(String employeeId, EmployeePatch patch, long expectedVersion) {
+        Employee[] previous = new Employee[1];
+        Employee patched = employees.computeIfPresent(employeeId, (id, stored) -> {
+            if (!isAt(stored, expectedVersion)) {
+                return stored;
+            }
+
+            previous[0] = stored;
+            return relinked(id, stored, versioned(patch.applyTo(copy(stored)), stored));
+        });
+
+        return previous[0] == null ? null : directReportsChange(previous[0], patched);
+    }
+
+    @Override
+    public Long findVersionByEmployeeId(String employeeId) {
+        Employee stored = employees.get(employeeId);
+        return stored == null ? null : version(stored);
+    }
+
+    @Override
+    public Employee findFieldsByEmployeeId(String employeeId, Collection<String> fields) {
+        Employee stored = employees.get(employeeId);
+        return stored == null ? null : projected(stored, fields);
+    }
+
+    @Override
+    public List<Employee> findFieldsByEmployeeIdIn(Collection<String> employeeIds, Collection<String> fields) {
+        List<Employee> found = new ArrayList<>(employeeIds.size());
+        for (String employeeId : new LinkedHashSet<>(employeeIds)) {
+            Employee employee = employees.get(employeeId);
+            if (employee != null) {
+                found.add(projected(employee, fields));
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Iterates over the stored Employees as they are at the time each is reached, the way a cursor does
+     */
+    @Override
+    public CloseableIterator<Employee> streamFields(Collection<String> fields) {
+        Iterator<Employee> stored = employees.values().iterator();
+        return new CloseableIterator<Employee>() {
+            @Override
+            public boolean hasNext() {
+                return stored.hasNext();
+            }
+
+            @Override
+            public Employee next() {
+                return projected(stored.next(), fields);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Integer> findNumberOfReportsByEmployeeIdIn(Collection<String> employeeIds) {
+        Map<String, Integer> numberOfReports = new HashMap<>();
+        for (String employeeId : employeeIds) {
+            Employee stored = employees.get(employeeId);
+            if (stored != null) {
+                numberOfReports.put(employeeId, stored.getNumberOfReports());
+            }
+        }
+
+        return numberOfReports;
+    }
+
+    @Override
+    public List<String> findManagerIdsByDirectReportIdIn(Collection<String> employeeIds) {
+        Set<String> found = new LinkedHashSet<>();
+        for (String employeeId : employeeIds) {
+            Set<String> reportManagerIds = managerIds.get(employeeId);
+            if (reportManagerIds != null) {
+                found.addAll(reportManagerIds);
+            }
+        }
+
+        return new ArrayList<>(found);
+    }
+
+    @Override
+    public long incrementNumberOfReports(Collection<String> employeeIds, int delta) {
+        long updated = 0;
+        for (String employeeId : new LinkedHashSet<>(employeeIds)) {
+            boolean[] incremented = new boolean[1];
+            employees.computeIfPresent(employeeId, (id, stored) -> {
+                incremented[0] = stored.getNumberOfReports() != null;
+                return incremented[0] ? withNumberOfReports(stored, stored.getNumberOfReports() + delta) : stored;
+            });
+            if (incremented[0]) {
+                updated++;
+            }
+        }
+
+        return updated;
+    }
+
+    @Override
+    public void unsetNumberOfReports(Collection<String> employeeIds) {
+        for (String employeeId : employeeIds) {
+            employees.computeIfPresent(employeeId, (id, stored) -> withNumberOfReports(stored, null));
+        }
+    }
+
+    @Override
+    public long replaceNumberOfReports(Map<String, Integer> numberOfReports,
+                                       Map<String, Integer> expectedNumberOfReports) {
+        long updated = 0;
+        for (Map.Entry<String, Integer> entry : numberOfReports.entrySet()) {
+            Integer expected = expectedNumberOfReports.get(entry.getKey());
+            boolean[] replaced = new boolean[1];
+            employees.computeIfPresent(entry.getKey(), (id, stored) -> {
+                replaced[0] = Objects.equals(stored.getNumberOfReports(), expected);
+                return replaced[0] ? withNumberOfReports(stored, entry.getValue()) : stored;
+            });
+            if (replaced[0]) {
+                updated++;
+            }
+        }
+
+        return updated;
+    }
+
+    @Override
+    public <S extends Employee> S insert(S employee) {
+        if (employee.getVersion() == null) {
+            employee.setVersion(0L);
+        }
+        if (employees.putIfAbsent(employee.getEmployeeId(), copy(employee)) != null) {
+            throw new DuplicateKeyException("Duplicate employeeId: " + employee.getEmployeeId());
+        }
+        relinked(employee.getEmployeeId(), null, employee);
+
+        publishAfterSave(employee);
+        return employee;
+    }
+
+    @Override
+    public <S extends Employee> S save(S employee) {
+        Employee stored = employees.compute(employee.getEmployeeId(), (id, previous) -> relinked(id, previous,
+                previous == null
+                        ? versioned(copy(employee), 0L)
+                        : versioned(copy(employee), version(previous) + 1)));
+        employee.setVersion(stored.getVersion());
+
+        publishAfterSave(employee);
+        return employee;
+    }
+
+    @Override
+    public Optional<Employee> findById(String employeeId) {
+        return Optional.ofNullable(findByEmployeeId(employeeId));
+    }
+
+    @Override
+    public long count() {
+        return employees.size();
+    }
+
+    @Override
+    public void deleteById(String employeeId) {
+        employees.computeIfPresent(employeeId, (id, stored) -> relinked(id, stored, null));
+    }
+
+    @Override
+    public void delete(Employee employee) {
+        deleteById(employee.getEmployeeId());
+    }
+
+    @Override
+    public void deleteAll() {
+        employees.clear();
+        managerIds.clear();
+    }
+
+    @Override
+    protected Stream<Employee> stored() {
+        return employees.values().stream();
+    }
+
+    @Override
+    protected Employee copy(Employee employee) {
+        return copyEmployee(employee);
+    }
+
+    /**
+     * Copies only the given fields of a stored Employee, along with its employeeId and version, like a Mongo projection
+     */
+    private static Employee projected(Employee stored, Collection<String> fields) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(stored.getEmployeeId());
+        employee.setVersion(stored.getVersion());
+        if (fields.contains("firstName")) {
+            employee.setFirstName(stored.getFirstName());
+        }
+        if (fields.contains("lastName")) {
+            employee.setLastName(stored.getLastName());
+        }
+        if (fields.contains("position")) {
+            employee.setPosition(stored.getPosition());
+        }
+        if (fields.contains("department")) {
+            employee.setDepartment(stored.getDepartment());
+        }
+        if (fields.contains("directReports") && stored.getDirectReports() != null) {
+            employee.setDirectReports(copyEmployee(stored).getDirectReports());
+        }
+        if (fields.contains("numberOfReports")) {
+            employee.setNumberOfReports(stored.getNumberOfReports());
+        }
+
+        return employee;
+    }
+
+    /**
+     * Works out the reports a write added to and removed from an Employee's directReports
+     */
+    private static EmployeePatch directReportsChange(Employee previous, Employee current) {
+        Set<String> previousReportIds = reportIds(previous);
+        Set<String> currentReportIds = reportIds(current);
+
+        EmployeePatch change = new EmployeePatch();
+        change.setAddDirectReports(new ArrayList<>(currentReportIds));
+        change.getAddDirectReports().removeAll(previousReportIds);
+        change.setRemoveDirectReports(new ArrayList<>(previousReportIds));
+        change.getRemoveDirectReports().removeAll(currentReportIds);
+        return change;
+    }
+
+    private static Set<String> reportIds(Employee employee) {
+        Set<String> reportIds = new LinkedHashSet<>();
+        if (employee.getDirectReports() != null) {
+            for (Employee report : employee.getDirectReports()) {
+                reportIds.add(report.getEmployeeId());
+            }
+        }
+
+        return reportIds;
+    }
+
+    /**
+     * Gives the Employee replacing a stored one the next version, the way Mongo increments the version of every
+     * templated update. A missing version counts as 0 like it does in the version index. The stored numberOfReports is
+     * kept, since the updates replacing an Employee's fields don't touch it.
+     */
+    private static Employee versioned(Employee employee, Employee previous) {
+        employee.setNumberOfReports(previous == null ? null : previous.getNumberOfReports());
+        return versioned(employee, previous == null ? 1L : version(previous) + 1);
+    }
+
+    /**
+     * Moves the Employee from the managers of the reports it no longer lists to the managers of the reports it now
+     * lists. Called while the write to the Employee holds its entry, so writes to the same Employee are applied in
+     * order.
+     *
+     * @param employeeId the id of the Employee written
+     * @param previous   the Employee as it was stored before the write, or null if it was not stored
+     * @param current    the Employee as it is stored after the write, or null if it was deleted
+     * @return current
+     */
+    private Employee relinked(String employeeId, Employee previous, Employee current) {
+        Set<String> previousReportIds = previous == null ? Collections.emptySet() : reportIds(previous);
+        Set<String> currentReportIds = current == null ? Collections.emptySet() : reportIds(current);
+        for (String reportId : previousReportIds) {
+            if (!currentReportIds.contains(reportId)) {
+                managerIds.computeIfPresent(reportId, (id, reportManagerIds) -> {
+                    Set<String> updated = new HashSet<>(reportManagerIds);
+                    updated.remove(employeeId);
+                    return updated.isEmpty() ? null : updated;
+                });
+            }
+        }
+        for (String reportId : currentReportIds) {
+            managerIds.compute(reportId, (id, reportManagerIds) -> {
+                Set<String> updated = reportManagerIds == null ? new HashSet<>() : new HashSet<>(reportManagerIds);
+                updated.add(employeeId);
+                return updated;
+            });
+        }
+
+        return current;
+    }
+
+    /**
+     * Copies a stored Employee with another numberOfReports, leaving its version alone
+     */
+    private static Employee withNumberOfReports(Employee stored, Integer numberOfReports) {
+        Employee employee = copyEmployee(stored);
+        employee.setNumberOfReports(numberOfReports);
+        return employee;
+    }
+
+    private static Employee versioned(Employee employee, long version) {
+        employee.setVersion(version);
+        return employee;
+    }
+
+    private static boolean isAt(Employee stored, long version) {
+        return version(stored) == version;
+    }
+
+    private static long version(Employee stored) {
+        return stored.getVersion() == null ? 0L : stored.getVersion();
+    }
+
+    /**
+     * Publishes the event the Mongo repository publishes after a write. The document is left empty since nothing was
+     * converted, listeners only read the saved Employee.
+     */
+    private void publishAfterSave(Employee employee) {
+        eventPublisher.publishEvent(new AfterSaveEvent<>(employee, new Document(), COLLECTION_NAME));
+    }
+}
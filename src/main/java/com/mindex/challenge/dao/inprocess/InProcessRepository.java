@@ -0,0 +1,278 @@
+package com.mindex.challenge.dao.inprocess;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Base for the repositories that keep their documents in in-process data structures instead of the Mongo server.
+ * <p>
+ * Documents are copied on the way in and out, the same way they would be serialized to and from the server, so callers
+ * are free to modify whatever they are given. Query by example compares each persisted property of the probe the way
+ * the Mongo server does, except that a nested document or list is compared whole.
+ *
+ * @param <T> the type of document stored
+ */
+abstract class InProcessRepository<T> implements MongoRepository<T, String> {
+
+    /**
+     * @return the stored documents, which must not be handed out without copying them
+     */
+    protected abstract Stream<T> stored();
+
+    protected abstract T copy(T document);
+
+    @Override
+    public List<T> findAll() {
+        return stored().map(this::copy)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> documents = findAll();
+        documents.sort(comparator(sort));
+
+        return documents;
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        return page(findAll(pageable.getSort()), pageable);
+    }
+
+    @Override
+    public Iterable<T> findAllById(Iterable<String> ids) {
+        List<T> documents = new ArrayList<>();
+        for (String id : ids) {
+            findById(id).ifPresent(documents::add);
+        }
+
+        return documents;
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return findById(id).isPresent();
+    }
+
+    /**
+     * Inserts the documents in order, stopping at the first one that can't be inserted like an ordered insertMany
+     */
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> documents) {
+        List<S> inserted = new ArrayList<>();
+        for (S document : documents) {
+            inserted.add(insert(document));
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> documents) {
+        List<S> saved = new ArrayList<>();
+        for (S document : documents) {
+            saved.add(save(document));
+        }
+
+        return saved;
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> documents) {
+        for (T document : documents) {
+            delete(document);
+        }
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        return matching(example).findFirst();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return matching(example).collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        List<S> documents = findAll(example);
+        documents.sort(comparator(sort));
+
+        return documents;
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(findAll(example, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return matching(example).count();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return matching(example).findAny().isPresent();
+    }
+
+    /**
+     * Copies an Employee along with its list of directReports, which only hold references to other Employees
+     */
+    static Employee copyEmployee(Employee employee) {
+        if (employee == null) {
+            return null;
+        }
+
+        Employee copy = new Employee(employee);
+        if (employee.getDirectReports() != null) {
+            copy.setDirectReports(employee.getDirectReports()
+                    .stream()
+                    .map(InProcessRepository::copyEmployee)
+                    .collect(Collectors.toList()));
+        }
+
+        return copy;
+    }
+
+    /**
+     * @return copies of the stored documents that match the example
+     */
+    private <S extends T> Stream<S> matching(Example<S> example) {
+        ExampleMatcherAccessor matcher = new ExampleMatcherAccessor(example.getMatcher());
+        Map<String, Object> criteria = criteria(example, matcher);
+        Class<S> probeType = example.getProbeType();
+
+        return stored().filter(probeType::isInstance)
+                .filter(document -> matches(new BeanWrapperImpl(document), criteria, example.getMatcher(), matcher))
+                .map(document -> probeType.cast(copy(document)));
+    }
+
+    /**
+     * Collects the value each persisted property of the probe must match, leaving out the ignored properties and, unless
+     * nulls are included, the ones the probe doesn't set
+     */
+    private static Map<String, Object> criteria(Example<?> example, ExampleMatcherAccessor matcher) {
+        BeanWrapper probe = new BeanWrapperImpl(example.getProbe());
+
+        Map<String, Object> criteria = new LinkedHashMap<>();
+        for (PropertyDescriptor property : probe.getPropertyDescriptors()) {
+            String path = property.getName();
+            if (!probe.isReadableProperty(path) || !isPersisted(example.getProbeType(), path)
+                    || matcher.isIgnoredPath(path)) {
+                continue;
+            }
+
+            Object value = matcher.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(probe.getPropertyValue(path)))
+                    .orElse(null);
+            if (value != null || matcher.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                criteria.put(path, value);
+            }
+        }
+
+        return criteria;
+    }
+
+    private static boolean matches(BeanWrapper document, Map<String, Object> criteria, ExampleMatcher exampleMatcher,
+                                   ExampleMatcherAccessor matcher) {
+        if (criteria.isEmpty()) {
+            return true;
+        }
+
+        Stream<Map.Entry<String, Object>> properties = criteria.entrySet().stream();
+        return exampleMatcher.isAllMatching()
+                ? properties.allMatch(property -> matches(document, property.getKey(), property.getValue(), matcher))
+                : properties.anyMatch(property -> matches(document, property.getKey(), property.getValue(), matcher));
+    }
+
+    /**
+     * Matches a property of a document against the probe's value, Strings are matched the way the matcher specifies
+     */
+    private static boolean matches(BeanWrapper document, String path, Object expected,
+                                   ExampleMatcherAccessor matcher) {
+        Object actual = document.getPropertyValue(path);
+        if (!(expected instanceof String) || !(actual instanceof String)) {
+            return Objects.equals(expected, actual);
+        }
+
+        boolean ignoreCase = matcher.isIgnoreCaseForPath(path);
+        ExampleMatcher.StringMatcher stringMatcher = matcher.getStringMatcherForPath(path);
+        if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+            return Pattern.compile((String) expected, ignoreCase ? Pattern.CASE_INSENSITIVE : 0)
+                    .matcher((String) actual)
+                    .find();
+        }
+
+        String probeValue = ignoreCase ? ((String) expected).toLowerCase(Locale.ROOT) : (String) expected;
+        String value = ignoreCase ? ((String) actual).toLowerCase(Locale.ROOT) : (String) actual;
+        switch (stringMatcher) {
+            case STARTING:
+                return value.startsWith(probeValue);
+            case ENDING:
+                return value.endsWith(probeValue);
+            case CONTAINING:
+                return value.contains(probeValue);
+            default:
+                return value.equals(probeValue);
+        }
+    }
+
+    /**
+     * @return whether the property is backed by a field that is stored with the document
+     */
+    private static boolean isPersisted(Class<?> type, String property) {
+        Field field = ReflectionUtils.findField(type, property);
+
+        return field != null && !field.isAnnotationPresent(Transient.class);
+    }
+
+    private static <D> Page<D> page(List<D> documents, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(documents);
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), documents.size());
+        int to = Math.min(from + pageable.getPageSize(), documents.size());
+
+        return new PageImpl<>(new ArrayList<>(documents.subList(from, to)), pageable, documents.size());
+    }
+
+    private Comparator<T> comparator(Sort sort) {
+        Comparator<T> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            comparator = comparator.thenComparing(
+                    new PropertyComparator<>(order.getProperty(), order.isIgnoreCase(), order.isAscending()));
+        }
+
+        return comparator;
+    }
+}
@@ -0,0 +1,9 @@
+package com.mindex.challenge.dao.reactive;
+
+import com.mindex.challenge.data.Compensation;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCompensationRepository extends ReactiveMongoRepository<Compensation, String> {
+    Mono<Compensation> findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(String employeeId);
+}
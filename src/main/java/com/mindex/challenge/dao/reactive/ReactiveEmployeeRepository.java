@@ -0,0 +1,17 @@
+package com.mindex.challenge.dao.reactive;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface ReactiveEmployeeRepository extends ReactiveMongoRepository<Employee, String>,
+        ReactiveEmployeeRepositoryCustom {
+    Mono<Employee> findByEmployeeId(String employeeId);
+
+    Flux<Employee> findByEmployeeIdIn(Collection<String> employeeIds);
+}
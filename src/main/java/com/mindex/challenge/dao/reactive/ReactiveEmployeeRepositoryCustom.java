@@ -0,0 +1,27 @@
+package com.mindex.challenge.dao.reactive;
+
+import com.mindex.challenge.data.Employee;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive Employee queries that can't be derived from a repository method name
+ */
+public interface ReactiveEmployeeRepositoryCustom {
+    /**
+     * Replaces every field of the stored Employee with the same employeeId as the given Employee, inserting it if it
+     * does not exist yet
+     *
+     * @param employee the Employee to store, its version is set to the stored one
+     * @return the stored Employee as it was just before it was replaced, with only its directReports and version set,
+     * or empty if it was inserted
+     */
+    Mono<Employee> upsertByEmployeeId(Employee employee);
+
+    /**
+     * Finds the stored numberOfReports of the Employee with the given id
+     *
+     * @param employeeId the id of the Employee
+     * @return the stored count, or empty if the Employee or its count is not stored
+     */
+    Mono<Integer> findNumberOfReportsByEmployeeId(String employeeId);
+}
@@ -0,0 +1,52 @@
+package com.mindex.challenge.dao.reactive;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ReactiveEmployeeRepositoryImpl implements ReactiveEmployeeRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    /**
+     * Replaces the stored Employee's fields the same way the blocking repository does, unsetting directReports rather
+     * than storing null so that later patches can add to it
+     */
+    @Override
+    public Mono<Employee> upsertByEmployeeId(Employee employee) {
+        Update update = new Update().set("firstName", employee.getFirstName())
+                .set("lastName", employee.getLastName())
+                .set("position", employee.getPosition())
+                .set("department", employee.getDepartment());
+        if (employee.getDirectReports() == null) {
+            update.unset("directReports");
+        } else {
+            update.set("directReports", employee.getDirectReports());
+        }
+
+        Query byEmployeeId = query(where("employeeId").is(employee.getEmployeeId()));
+        byEmployeeId.fields().include("employeeId").include("version").include("directReports");
+
+        return reactiveMongoTemplate.findAndModify(byEmployeeId, update, options().upsert(true), Employee.class)
+                .doOnNext(previous -> employee.setVersion(
+                        (previous.getVersion() == null ? 0L : previous.getVersion()) + 1))
+                .switchIfEmpty(Mono.fromRunnable(() -> employee.setVersion(1L)));
+    }
+
+    @Override
+    public Mono<Integer> findNumberOfReportsByEmployeeId(String employeeId) {
+        Query byEmployeeId = query(where("employeeId").is(employeeId));
+        byEmployeeId.fields().include("numberOfReports").exclude("_id");
+
+        return reactiveMongoTemplate.findOne(byEmployeeId, Employee.class)
+                .flatMap(employee -> Mono.justOrEmpty(employee.getNumberOfReports()));
+    }
+}
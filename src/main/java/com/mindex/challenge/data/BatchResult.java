@@ -0,0 +1,86 @@
+package com.mindex.challenge.data;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Model to represent the result of looking up a batch of ids, with what was found keyed by id and the ids nothing was
+ * found for, both in the order the ids were asked for
+ */
+public class BatchResult<T> {
+
+    private Map<String, T> found;
+
+    private List<String> missing;
+
+    public BatchResult() {
+    }
+
+    public BatchResult(Map<String, T> found, List<String> missing) {
+        this.found = found;
+        this.missing = missing;
+    }
+
+    /**
+     * @param ids   the ids that were looked up, repeated ids are only reported once
+     * @param found what was found keyed by id
+     * @return the result of looking up the ids
+     */
+    public static <T> BatchResult<T> of(Collection<String> ids, Map<String, T> found) {
+        Map<String, T> orderedFound = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            T value = found.get(id);
+            if (value != null) {
+                orderedFound.put(id, value);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        return new BatchResult<>(orderedFound, missing);
+    }
+
+    public Map<String, T> getFound() {
+        return found;
+    }
+
+    public void setFound(Map<String, T> found) {
+        this.found = found;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<String> missing) {
+        this.missing = missing;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o == null || getClass() != o.getClass()) return false;
+
+        BatchResult<?> that = (BatchResult<?>) o;
+
+        return new EqualsBuilder().append(found, that.found)
+                .append(missing, that.missing)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(47, 71).append(found)
+                .append(missing)
+                .toHashCode();
+    }
+}
@@ -0,0 +1,78 @@
+package com.mindex.challenge.data;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Model to represent the outcome of creating one record of a bulk create request, either the id assigned to the
+ * created entity or the reason it could not be created
+ */
+public class BulkCreateResult {
+
+    private Integer index;
+
+    private String employeeId;
+
+    private String error;
+
+    public BulkCreateResult() {
+    }
+
+    public static BulkCreateResult created(String employeeId) {
+        BulkCreateResult result = new BulkCreateResult();
+        result.setEmployeeId(employeeId);
+        return result;
+    }
+
+    public static BulkCreateResult failed(String error) {
+        BulkCreateResult result = new BulkCreateResult();
+        result.setError(error);
+        return result;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(String employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o == null || getClass() != o.getClass()) return false;
+
+        BulkCreateResult that = (BulkCreateResult) o;
+
+        return new EqualsBuilder().append(index, that.index)
+                .append(employeeId, that.employeeId)
+                .append(error, that.error)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(29, 47).append(index)
+                .append(employeeId)
+                .append(error)
+                .toHashCode();
+    }
+}
@@ -1,16 +1,35 @@
 package com.mindex.challenge.data;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 /**
  * Model to represent an employee's salary at a given date
+ * <p>
+ * Only the employeeId of the Employee is stored with a Compensation. The Employee itself is filled in when the
+ * Compensation is read, so it is always the Employee as it currently is.
  */
 public class Compensation {
+    /**
+     * Id of the stored document, only used to order Compensations sharing an effectiveDate when paging through them
+     */
+    @JsonIgnore
+    private String id;
+
+    /**
+     * Id of the Employee the Compensation is for, the only part of the Employee that is stored
+     */
+    @JsonIgnore
+    private String employeeId;
+
+    @Transient
     private Employee employee;
 
     private BigDecimal salary;
@@ -18,12 +37,58 @@ public class Compensation {
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate effectiveDate;
 
+    /**
+     * Version of the stored document, combined with its id to form the Compensation's ETag
+     */
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    public Compensation() {
+    }
+
+    public Compensation(Compensation compensation) {
+        this.id = compensation.id;
+        this.employeeId = compensation.employeeId;
+        this.employee = compensation.employee;
+        this.salary = compensation.salary;
+        this.effectiveDate = compensation.effectiveDate;
+        this.version = compensation.version;
+    }
+
+    /**
+     * @param employee the Employee to fill in, or null to leave only the employeeId
+     * @return a copy of the Compensation with the given Employee filled in
+     */
+    public Compensation withEmployee(Employee employee) {
+        Compensation compensation = new Compensation(this);
+        compensation.employee = employee;
+        return compensation;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public Employee getEmployee() {
         return employee;
     }
 
     public void setEmployee(Employee employee) {
         this.employee = employee;
+        this.employeeId = employee == null ? null : employee.getEmployeeId();
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(String employeeId) {
+        this.employeeId = employeeId;
     }
 
     public BigDecimal getSalary() {
@@ -42,6 +107,14 @@ public class Compensation {
         this.effectiveDate = effectiveDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -50,7 +123,7 @@ public class Compensation {
 
         Compensation that = (Compensation) o;
 
-        return new EqualsBuilder().append(employee, that.employee)
+        return new EqualsBuilder().append(employeeId, that.employeeId)
                 .append(salary, that.salary)
                 .append(effectiveDate, that.effectiveDate)
                 .isEquals();
@@ -58,7 +131,7 @@ public class Compensation {
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(11, 31).append(employee)
+        return new HashCodeBuilder(11, 31).append(employeeId)
                 .append(salary)
                 .append(effectiveDate)
                 .toHashCode();
@@ -0,0 +1,64 @@
+package com.mindex.challenge.data;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.List;
+
+/**
+ * Model to represent one page of an employee's Compensations in effectiveDate order, along with the cursor to pass to
+ * fetch the next page
+ */
+public class CompensationHistory {
+
+    private List<Compensation> compensations;
+
+    private String nextCursor;
+
+    public CompensationHistory() {
+    }
+
+    public CompensationHistory(List<Compensation> compensations, String nextCursor) {
+        this.compensations = compensations;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Compensation> getCompensations() {
+        return compensations;
+    }
+
+    public void setCompensations(List<Compensation> compensations) {
+        this.compensations = compensations;
+    }
+
+    /**
+     * @return the cursor to fetch the page following this one with, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CompensationHistory that = (CompensationHistory) o;
+
+        return new EqualsBuilder().append(compensations, that.compensations)
+                .append(nextCursor, that.nextCursor)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(31, 53).append(compensations)
+                .append(nextCursor)
+                .toHashCode();
+    }
+}
@@ -1,14 +1,33 @@
 package com.mindex.challenge.data;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import org.springframework.data.annotation.Version;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A representation of an employee in this application
  */
 public class Employee {
+    /**
+     * Id of the Jackson filter the application's ObjectMapper applies to Employees, every field is serialized unless a
+     * response sets its own filter with this id
+     */
+    public static final String FIELDS_FILTER = "employeeFields";
+
+    /**
+     * Names of the fields a request can limit an Employee to
+     */
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "employeeId", "firstName", "lastName", "position", "department", "directReports")));
+
     private String employeeId;
     private String firstName;
     private String lastName;
@@ -16,9 +35,39 @@ public class Employee {
     private String department;
     private List<Employee> directReports;
 
+    /**
+     * Incremented on every write, exposed to clients as the Employee's ETag rather than in its body
+     */
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Total number of reports under the Employee, kept up to date on every write to the hierarchy and checked in the
+     * background. Null until it has been computed.
+     */
+    @JsonIgnore
+    private Integer numberOfReports;
+
     public Employee() {
     }
 
+    /**
+     * Creates a shallow copy of the given Employee, the copy shares the directReports list of the original
+     *
+     * @param employee the Employee to copy
+     */
+    public Employee(Employee employee) {
+        this.employeeId = employee.employeeId;
+        this.firstName = employee.firstName;
+        this.lastName = employee.lastName;
+        this.position = employee.position;
+        this.department = employee.department;
+        this.directReports = employee.directReports;
+        this.version = employee.version;
+        this.numberOfReports = employee.numberOfReports;
+    }
+
     public String getEmployeeId() {
         return employeeId;
     }
@@ -67,6 +116,22 @@ public class Employee {
         this.directReports = directReports;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getNumberOfReports() {
+        return numberOfReports;
+    }
+
+    public void setNumberOfReports(Integer numberOfReports) {
+        this.numberOfReports = numberOfReports;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,153 @@
+package com.mindex.challenge.data;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Model to represent a partial update of an employee. Only the fields that are set are changed, and direct reports
+ * are added or removed one employeeId at a time rather than replacing the whole list. Removals are applied before
+ * additions.
+ */
+public class EmployeePatch {
+    private String firstName;
+    private String lastName;
+    private String position;
+    private String department;
+    private List<String> addDirectReports;
+    private List<String> removeDirectReports;
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    /**
+     * @return the employeeIds to add to the end of the directReports, any that are already there are moved to the end
+     * so each employeeId is listed once
+     */
+    public List<String> getAddDirectReports() {
+        return addDirectReports;
+    }
+
+    public void setAddDirectReports(List<String> addDirectReports) {
+        this.addDirectReports = addDirectReports;
+    }
+
+    /**
+     * @return the employeeIds to remove from the directReports
+     */
+    public List<String> getRemoveDirectReports() {
+        return removeDirectReports;
+    }
+
+    public void setRemoveDirectReports(List<String> removeDirectReports) {
+        this.removeDirectReports = removeDirectReports;
+    }
+
+    /**
+     * Applies the patch to the given Employee in place, the way the repositories apply it to the stored one
+     *
+     * @param employee the Employee to change, its directReports list is modified rather than replaced
+     * @return the given Employee
+     */
+    public Employee applyTo(Employee employee) {
+        if (firstName != null) {
+            employee.setFirstName(firstName);
+        }
+        if (lastName != null) {
+            employee.setLastName(lastName);
+        }
+        if (position != null) {
+            employee.setPosition(position);
+        }
+        if (department != null) {
+            employee.setDepartment(department);
+        }
+
+        // Additions are taken out along with the removals before being added back, so no report is listed twice
+        Set<String> removals = new HashSet<>();
+        if (removeDirectReports != null) {
+            removals.addAll(removeDirectReports);
+        }
+        if (addDirectReports != null) {
+            removals.addAll(addDirectReports);
+        }
+        if (!removals.isEmpty() && employee.getDirectReports() != null) {
+            employee.getDirectReports().removeIf(report -> removals.contains(report.getEmployeeId()));
+        }
+        if (addDirectReports != null && !addDirectReports.isEmpty()) {
+            List<Employee> directReports = employee.getDirectReports() == null
+                    ? new ArrayList<>()
+                    : employee.getDirectReports();
+            for (String addition : new LinkedHashSet<>(addDirectReports)) {
+                Employee report = new Employee();
+                report.setEmployeeId(addition);
+                directReports.add(report);
+            }
+            employee.setDirectReports(directReports);
+        }
+
+        return employee;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o == null || getClass() != o.getClass()) return false;
+
+        EmployeePatch that = (EmployeePatch) o;
+
+        return new EqualsBuilder().append(firstName, that.firstName)
+                .append(lastName, that.lastName)
+                .append(position, that.position)
+                .append(department, that.department)
+                .append(addDirectReports, that.addDirectReports)
+                .append(removeDirectReports, that.removeDirectReports)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(43, 67).append(firstName)
+                .append(lastName)
+                .append(position)
+                .append(department)
+                .append(addDirectReports)
+                .append(removeDirectReports)
+                .toHashCode();
+    }
+}
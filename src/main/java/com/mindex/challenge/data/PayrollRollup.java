@@ -0,0 +1,112 @@
+package com.mindex.challenge.data;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.math.BigDecimal;
+
+/**
+ * Model to represent the current salary cost of an employee and everyone under them
+ */
+public class PayrollRollup {
+
+    private String employeeId;
+
+    private int headcount;
+
+    private int compensatedHeadcount;
+
+    private BigDecimal totalSalary;
+
+    private BigDecimal meanSalary;
+
+    public PayrollRollup() {
+    }
+
+    public PayrollRollup(String employeeId, int headcount, int compensatedHeadcount, BigDecimal totalSalary,
+                         BigDecimal meanSalary) {
+        this.employeeId = employeeId;
+        this.headcount = headcount;
+        this.compensatedHeadcount = compensatedHeadcount;
+        this.totalSalary = totalSalary;
+        this.meanSalary = meanSalary;
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(String employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    /**
+     * @return the number of employees in the subtree, including the employee at its root
+     */
+    public int getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(int headcount) {
+        this.headcount = headcount;
+    }
+
+    /**
+     * @return the number of employees in the subtree with a Compensation
+     */
+    public int getCompensatedHeadcount() {
+        return compensatedHeadcount;
+    }
+
+    public void setCompensatedHeadcount(int compensatedHeadcount) {
+        this.compensatedHeadcount = compensatedHeadcount;
+    }
+
+    /**
+     * @return the total of the salaries of each employee's most recent Compensation
+     */
+    public BigDecimal getTotalSalary() {
+        return totalSalary;
+    }
+
+    public void setTotalSalary(BigDecimal totalSalary) {
+        this.totalSalary = totalSalary;
+    }
+
+    /**
+     * @return the mean salary of the employees with a Compensation, or null if none of them have one
+     */
+    public BigDecimal getMeanSalary() {
+        return meanSalary;
+    }
+
+    public void setMeanSalary(BigDecimal meanSalary) {
+        this.meanSalary = meanSalary;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PayrollRollup that = (PayrollRollup) o;
+
+        return new EqualsBuilder().append(employeeId, that.employeeId)
+                .append(headcount, that.headcount)
+                .append(compensatedHeadcount, that.compensatedHeadcount)
+                .append(totalSalary, that.totalSalary)
+                .append(meanSalary, that.meanSalary)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(37, 59).append(employeeId)
+                .append(headcount)
+                .append(compensatedHeadcount)
+                .append(totalSalary)
+                .append(meanSalary)
+                .toHashCode();
+    }
+}
@@ -0,0 +1,64 @@
+package com.mindex.challenge.data;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.List;
+
+/**
+ * Model to represent one page of the flattened list of everyone under an employee, along with the cursor to pass to
+ * fetch the next page
+ */
+public class ReportsPage {
+
+    private List<Employee> reports;
+
+    private String nextCursor;
+
+    public ReportsPage() {
+    }
+
+    public ReportsPage(List<Employee> reports, String nextCursor) {
+        this.reports = reports;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Employee> getReports() {
+        return reports;
+    }
+
+    public void setReports(List<Employee> reports) {
+        this.reports = reports;
+    }
+
+    /**
+     * @return the cursor to fetch the page following this one with, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ReportsPage that = (ReportsPage) o;
+
+        return new EqualsBuilder().append(reports, that.reports)
+                .append(nextCursor, that.nextCursor)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(41, 61).append(reports)
+                .append(nextCursor)
+                .toHashCode();
+    }
+}
@@ -0,0 +1,72 @@
+package com.mindex.challenge.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the repository calls and documents fetched while handling each request, recording them per endpoint and
+ * warning when a request makes more repository calls than the query budget allows
+ */
+@Component
+public class QueryAccountingInterceptor implements HandlerInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryAccountingInterceptor.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${challenge.metrics.query-budget:50}")
+    private long queryBudget;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestQueryStats.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        RequestQueryStats.clear();
+        if (stats == null) {
+            return;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+
+        DistributionSummary.builder("challenge.request.repository.calls")
+                .description("Repository calls made while handling a request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getRepositoryCalls());
+        DistributionSummary.builder("challenge.request.documents.fetched")
+                .description("Documents returned by the repository calls made while handling a request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getDocumentsFetched());
+
+        if (stats.getRepositoryCalls() > queryBudget) {
+            LOG.warn("{} {} made [{}] repository calls fetching [{}] documents, over the query budget of [{}]",
+                    request.getMethod(), request.getRequestURI(), stats.getRepositoryCalls(),
+                    stats.getDocumentsFetched(), queryBudget);
+            Counter.builder("challenge.request.query.budget.exceeded")
+                    .description("Requests that made more repository calls than the query budget")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mindex.challenge.metrics;
+
+import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.dao.EmployeeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Times every call made through the {@link EmployeeRepository} and {@link CompensationRepository}, and counts it and
+ * the documents it returned towards the current request's {@link RequestQueryStats}
+ */
+@Aspect
+@Component
+public class RepositoryCallAccounting {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("target(com.mindex.challenge.dao.EmployeeRepository) "
+            + "|| target(com.mindex.challenge.dao.CompensationRepository)")
+    public Object account(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        RequestQueryStats stats = RequestQueryStats.current();
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            if (stats != null) {
+                stats.recordCall(countDocuments(result));
+            }
+
+            return result;
+        } catch (Throwable e) {
+            if (stats != null) {
+                stats.recordCall(0);
+            }
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("challenge.repository.calls")
+                    .description("Calls made through the repositories")
+                    .tag("repository", joinPoint.getTarget() instanceof EmployeeRepository
+                            ? EmployeeRepository.class.getSimpleName()
+                            : CompensationRepository.class.getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Counts the documents in a repository call's result, counts and other values that aren't documents count as none
+     */
+    private static long countDocuments(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Iterable) {
+            long documents = 0;
+            for (Object ignored : (Iterable<?>) result) {
+                documents++;
+            }
+            return documents;
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result == null || result instanceof Number || result instanceof Boolean) {
+            return 0;
+        }
+
+        return 1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.mindex.challenge.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running count of the repository calls made, and the documents they returned, while handling the current request.
+ * <p>
+ * The stats are bound to the thread handling the request. Work the request hands to another thread only counts towards
+ * it when the task is wrapped with {@link #propagate}.
+ */
+public final class RequestQueryStats {
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder repositoryCalls = new LongAdder();
+
+    private final LongAdder documentsFetched = new LongAdder();
+
+    private RequestQueryStats() {
+    }
+
+    /**
+     * Starts counting for a request handled by the current thread
+     *
+     * @return the stats for the request
+     */
+    public static RequestQueryStats start() {
+        RequestQueryStats stats = new RequestQueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * @return the stats for the request handled by the current thread, or null if it isn't handling one
+     */
+    public static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stops counting for the request handled by the current thread
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wraps a task so the repository calls it makes count towards the request that submitted it
+     *
+     * @param task the task to run on another thread
+     * @return the wrapped task
+     */
+    public static Runnable propagate(Runnable task) {
+        RequestQueryStats stats = CURRENT.get();
+        if (stats == null) {
+            return task;
+        }
+
+        return () -> {
+            RequestQueryStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    void recordCall(long documents) {
+        repositoryCalls.increment();
+        documentsFetched.add(documents);
+    }
+
+    public long getRepositoryCalls() {
+        return repositoryCalls.sum();
+    }
+
+    public long getDocumentsFetched() {
+        return documentsFetched.sum();
+    }
+}
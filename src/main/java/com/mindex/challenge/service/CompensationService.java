@@ -1,8 +1,15 @@
 package com.mindex.challenge.service;
 
+import com.mindex.challenge.data.CacheStatistics;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationHistory;
+import com.mindex.challenge.data.PayrollRollup;
 import com.mindex.challenge.exceptions.NotFoundException;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
 public interface CompensationService {
 
     /**
@@ -21,4 +28,51 @@ public interface CompensationService {
      * @throws NotFoundException if no Compensation is found for employeeId
      */
     Compensation findByEmployeeId(String employeeId) throws NotFoundException;
+
+    /**
+     * Finds the most recent Compensation of each of the given employees, reading all of those that aren't cached with
+     * a single query
+     *
+     * @param employeeIds the ids of the employees to find Compensations for
+     * @return the most recent Compensation of each employee that has any, keyed by employeeId
+     */
+    Map<String, Compensation> findByEmployeeIds(Collection<String> employeeIds);
+
+    /**
+     * Finds the Compensation in effect for a given employeeId on a given date
+     *
+     * @param employeeId the id of the employee to find a Compensation for
+     * @param asOf       the date to find the Compensation in effect on
+     * @return the most recent Compensation for the employee with employeeId effective on or before asOf
+     * @throws NotFoundException if no Compensation is found for employeeId effective on or before asOf
+     */
+    Compensation findByEmployeeIdAsOf(String employeeId, LocalDate asOf) throws NotFoundException;
+
+    /**
+     * Finds a page of the Compensations for a given employeeId in effectiveDate order, oldest first
+     *
+     * @param employeeId the id of the employee to find Compensations for
+     * @param cursor     the nextCursor of the previous page, or null for the first page
+     * @param limit      the maximum number of Compensations on the page, capped at the configured maximum page size
+     * @return the page of Compensations, with the cursor for the next page unless it is the last one
+     * @throws IllegalArgumentException if the cursor is not one handed out by a previous page
+     */
+    CompensationHistory findHistoryByEmployeeId(String employeeId, String cursor, int limit);
+
+    /**
+     * Totals the salaries of the most recent Compensations of an employee and everyone under them
+     *
+     * @param employeeId the id of the employee at the root of the subtree
+     * @return the headcount, total and mean salary of the subtree
+     * @throws NotFoundException     if no employee is found for employeeId
+     * @throws IllegalStateException if the reporting hierarchy is not a tree, so the subtree is not well defined
+     */
+    PayrollRollup getPayrollRollup(String employeeId) throws NotFoundException;
+
+    /**
+     * Reports how effective the cache of most recent Compensations has been
+     *
+     * @return the hit, miss and eviction counts of the cache
+     */
+    CacheStatistics getCacheStatistics();
 }
@@ -1,8 +1,19 @@
 package com.mindex.challenge.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mindex.challenge.data.BulkCreateResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.ReportsPage;
 import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.exceptions.PreconditionFailedException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface EmployeeService {
     /**
@@ -13,6 +24,14 @@ public interface EmployeeService {
      */
     Employee create(Employee employee);
 
+    /**
+     * Creates the given employees together, implementations are responsible for assigning each employeeId
+     *
+     * @param employees the Employees to create
+     * @return the outcome of creating each Employee, in the same order as employees
+     */
+    List<BulkCreateResult> createAll(List<Employee> employees);
+
     /**
      * Finds an Employee by the given id
      *
@@ -22,6 +41,34 @@ public interface EmployeeService {
      */
     Employee read(String id) throws NotFoundException;
 
+    /**
+     * Finds an Employee by the given id, only reading the given fields of it when it has to be read from storage
+     *
+     * @param id     the id of the Employee to find
+     * @param fields the names of the fields the caller needs, or null for every field
+     * @return the Employee found with id, with at least those fields and employeeId set
+     * @throws NotFoundException        if no employees could be found with id
+     * @throws IllegalArgumentException if any of the fields is not a field of an Employee
+     */
+    Employee read(String id, Set<String> fields) throws NotFoundException;
+
+    /**
+     * Finds the Employees with the given ids, reading all of those that aren't cached with a single query
+     *
+     * @param ids the ids of the Employees to find
+     * @return the Employees found keyed by employeeId, ids that could not be found are left out
+     */
+    Map<String, Employee> readAll(Collection<String> ids);
+
+    /**
+     * Finds only the version of the Employee with the given id, without reading the rest of it when it isn't cached
+     *
+     * @param id the id of the Employee
+     * @return the Employee's current version
+     * @throws NotFoundException if no employees could be found with id
+     */
+    long readVersion(String id) throws NotFoundException;
+
     /**
      * Updates the given Employee.
      *
@@ -30,6 +77,39 @@ public interface EmployeeService {
      */
     Employee update(Employee employee);
 
+    /**
+     * Updates the given Employee only if it is still at the expected version
+     *
+     * @param employee        the Employee to update
+     * @param expectedVersion the version the Employee must be at, or null to update it whatever its version
+     * @return the updated Employee, with its new version
+     * @throws PreconditionFailedException if the Employee does not exist or is at another version
+     */
+    Employee update(Employee employee, Long expectedVersion) throws PreconditionFailedException;
+
+    /**
+     * Applies a partial update to the Employee with the given id, leaving the fields the patch does not set as they are
+     *
+     * @param id    the id of the Employee to update
+     * @param patch the changes to apply
+     * @return the updated Employee
+     * @throws NotFoundException if no employees could be found with id
+     */
+    Employee patch(String id, EmployeePatch patch) throws NotFoundException;
+
+    /**
+     * Applies a partial update to the Employee with the given id only if it is still at the expected version
+     *
+     * @param id              the id of the Employee to update
+     * @param patch           the changes to apply
+     * @param expectedVersion the version the Employee must be at, or null to patch it whatever its version
+     * @return the updated Employee
+     * @throws NotFoundException           if no employees could be found with id
+     * @throws PreconditionFailedException if the Employee is at another version
+     */
+    Employee patch(String id, EmployeePatch patch, Long expectedVersion)
+            throws NotFoundException, PreconditionFailedException;
+
     /**
      * Builds the ReportingStructure for the Employee with the given id
      *
@@ -38,4 +118,84 @@ public interface EmployeeService {
      * @throws NotFoundException if the Employee with id, or any of its reports, could not be found
      */
     ReportingStructure getReportingStructure(String id) throws NotFoundException;
+
+    /**
+     * Builds the ReportingStructure for the Employee with the given id, only filling out the top maxDepth levels of
+     * reports. numberOfReports still counts every report, at any depth.
+     *
+     * @param id       the id of the Employee to get the ReportingStructure for
+     * @param maxDepth the number of levels of reports to fill out, or null to fill out every level
+     * @return a ReportingStructure for the Employee with id
+     * @throws NotFoundException if the Employee with id, or any of its reports, could not be found
+     */
+    ReportingStructure getReportingStructure(String id, Integer maxDepth) throws NotFoundException;
+
+    /**
+     * Builds the ReportingStructure for the Employee with the given id, like {@link #getReportingStructure(String,
+     * Integer)}, only reading the given fields of each Employee when it has to be read from storage
+     *
+     * @param id       the id of the Employee to get the ReportingStructure for
+     * @param maxDepth the number of levels of reports to fill out, or null to fill out every level
+     * @param fields   the names of the fields the caller needs from each Employee, or null for every field
+     * @return a ReportingStructure for the Employee with id, every Employee in it has at least those fields,
+     * employeeId and directReports set
+     * @throws NotFoundException        if the Employee with id, or any of its reports, could not be found
+     * @throws IllegalArgumentException if any of the fields is not a field of an Employee
+     */
+    ReportingStructure getReportingStructure(String id, Integer maxDepth, Set<String> fields)
+            throws NotFoundException;
+
+    /**
+     * Writes the ReportingStructure for the Employee with the given id as JSON while walking it, rather than building
+     * it first, so the whole tree is never held in memory. numberOfReports is written after the employee. Reports that
+     * could not be found are written as references, since the response may already be under way by then.
+     *
+     * @param id        the id of the Employee to write the ReportingStructure for
+     * @param maxDepth  the number of levels of reports to fill out, or null to fill out every level
+     * @param fields    the names of the fields to write for each Employee, or null to write every field
+     * @param generator the generator to write the ReportingStructure to, nothing is written if the Employee with id
+     *                  can't be found
+     * @return the numberOfReports written
+     * @throws NotFoundException        if the Employee with id could not be found
+     * @throws IllegalArgumentException if any of the fields is not a field of an Employee
+     * @throws IOException              if the ReportingStructure could not be written
+     */
+    int writeReportingStructure(String id, Integer maxDepth, Set<String> fields, JsonGenerator generator)
+            throws NotFoundException, IOException;
+
+    /**
+     * Finds only the total number of reports under an Employee, read from the count stored with it whatever the size of
+     * the org below it. The count is computed from the reporting structure when it hasn't been stored yet.
+     *
+     * @param id the id of the Employee
+     * @return the number of reports under the Employee with id
+     * @throws NotFoundException if the Employee with id, or any of its reports when the count is computed, could not
+     *                           be found
+     */
+    int getNumberOfReports(String id) throws NotFoundException;
+
+    /**
+     * Checks whether an Employee reports to another, directly or through any number of other managers
+     *
+     * @param id        the id of the Employee that may be a report
+     * @param managerId the id of the Employee that may be their manager
+     * @return whether the Employee with id is anywhere under the Employee with managerId
+     * @throws NotFoundException     if either Employee could not be found
+     * @throws IllegalStateException if the reporting hierarchy is not a tree, so reports are not well defined
+     */
+    boolean isReportOf(String id, String managerId) throws NotFoundException;
+
+    /**
+     * Finds a page of every Employee under the Employee with the given id, at any depth, with each manager listed
+     * before their own reports
+     *
+     * @param id     the id of the Employee to list the reports of
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit  the maximum number of reports on the page, capped at the configured maximum page size
+     * @return the page of reports, with the cursor for the next page unless it is the last one
+     * @throws NotFoundException        if the Employee with id could not be found
+     * @throws IllegalArgumentException if the cursor is not one handed out by a previous page for the Employee
+     * @throws IllegalStateException    if the reporting hierarchy is not a tree, so reports are not well defined
+     */
+    ReportsPage findReports(String id, String cursor, int limit) throws NotFoundException;
 }
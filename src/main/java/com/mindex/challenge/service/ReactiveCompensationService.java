@@ -0,0 +1,28 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.exceptions.NotFoundException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link CompensationService}, errors are signalled through the returned Mono
+ */
+public interface ReactiveCompensationService {
+
+    /**
+     * Creates a new Compensation entity
+     *
+     * @param compensation the Compensation to create
+     * @return the created Compensation
+     */
+    Mono<Compensation> create(Compensation compensation);
+
+    /**
+     * Finds the most recent Compensation for a given employeeId
+     *
+     * @param employeeId the id of the employee to find a Compensation for
+     * @return the most recent Compensation for the employee with employeeId, or a {@link NotFoundException} if no
+     * Compensation is found for employeeId
+     */
+    Mono<Compensation> findByEmployeeId(String employeeId);
+}
@@ -0,0 +1,46 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.exceptions.NotFoundException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link EmployeeService}, errors are signalled through the returned Mono
+ */
+public interface ReactiveEmployeeService {
+    /**
+     * Creates the given employee, implementations are responsible for assigning employeeId
+     *
+     * @param employee the Employee to create
+     * @return the created Employee, with employeeId set
+     */
+    Mono<Employee> create(Employee employee);
+
+    /**
+     * Finds an Employee by the given id
+     *
+     * @param id the id of the Employee to find
+     * @return the Employee found with id, or a {@link NotFoundException} if no employees could be found with id
+     */
+    Mono<Employee> read(String id);
+
+    /**
+     * Updates the given Employee.
+     *
+     * @param employee the Employee to update
+     * @return the updated Employee
+     */
+    Mono<Employee> update(Employee employee);
+
+    /**
+     * Builds the ReportingStructure for the Employee with the given id, only filling out the top maxDepth levels of
+     * reports. numberOfReports still counts every report, at any depth.
+     *
+     * @param id       the id of the Employee to get the ReportingStructure for
+     * @param maxDepth the number of levels of reports to fill out, or null to fill out every level
+     * @return a ReportingStructure for the Employee with id, or a {@link NotFoundException} if the Employee with id,
+     * or any of its reports, could not be found
+     */
+    Mono<ReportingStructure> getReportingStructure(String id, Integer maxDepth);
+}
@@ -1,41 +1,315 @@
 package com.mindex.challenge.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.dao.OrgGraphIndex;
+import com.mindex.challenge.data.CacheStatistics;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationHistory;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.PayrollRollup;
 import com.mindex.challenge.exceptions.NotFoundException;
 import com.mindex.challenge.service.CompensationService;
+import com.mindex.challenge.service.EmployeeService;
+import io.micrometer.core.annotation.Timed;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 public class CompensationServiceImpl implements CompensationService {
     private static final Logger LOG = LoggerFactory.getLogger(CompensationServiceImpl.class);
 
+    private static final String SERVICE_TIMER = "challenge.service";
+
+    private static final Comparator<Compensation> RECENCY = Comparator.comparing(Compensation::getEffectiveDate,
+            Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+            .thenComparing(Compensation::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
     @Autowired
     private CompensationRepository compensationRepository;
 
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    /**
+     * Most recent Compensation of each Employee, cached with only the employeeId of the Employee
+     */
+    @Autowired
+    private Cache<String, Compensation> latestCompensationCache;
+
+    @Value("${challenge.compensation.history.max-page-size:100}")
+    private int maxHistoryPageSize;
+
+    /**
+     * Number of Compensations created so far, used to stop a cache fill that raced with a create from caching a
+     * Compensation that is no longer the most recent
+     */
+    private final AtomicLong compensationsCreated = new AtomicLong();
 
     @Override
+    @Timed(SERVICE_TIMER)
     public Compensation create(Compensation compensation) {
         LOG.debug("Creating compensation [{}]", compensation);
 
         compensationRepository.insert(compensation);
+        orgGraphIndex.put(compensation);
+
+        compensationsCreated.incrementAndGet();
+        // A Compensation stored without an Employee is never found by employeeId, so no cached one can be replaced
+        if (compensation.getEmployeeId() != null) {
+            Compensation createdCompensation = compensation.withEmployee(null);
+            latestCompensationCache.asMap().computeIfPresent(compensation.getEmployeeId(),
+                    (employeeId, cachedCompensation) -> mostRecent(cachedCompensation, createdCompensation));
+        }
+
         return compensation;
     }
 
     @Override
+    @Timed(SERVICE_TIMER)
     public Compensation findByEmployeeId(String employeeId) throws NotFoundException {
         LOG.debug("Finding compensation by employee ID [{}]", employeeId);
 
+        Compensation cachedCompensation = latestCompensationCache.getIfPresent(employeeId);
+        if (cachedCompensation != null) {
+            return hydrate(cachedCompensation);
+        }
+
+        long compensationsCreatedBeforeFind = compensationsCreated.get();
         Compensation compensation = compensationRepository
-                .findFirstByEmployee_EmployeeIdOrderByEffectiveDateDesc(employeeId);
+                .findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(employeeId);
 
         if (compensation == null) {
             throw new NotFoundException("Compensation not found for employee: " + employeeId);
         }
 
-        return compensation;
+        cache(compensation, compensationsCreatedBeforeFind);
+
+        return hydrate(compensation);
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public Map<String, Compensation> findByEmployeeIds(Collection<String> employeeIds) {
+        LOG.debug("Finding compensations by [{}] employee IDs", employeeIds.size());
+
+        List<Compensation> compensations = new ArrayList<>();
+        Set<String> uncachedEmployeeIds = new LinkedHashSet<>();
+        for (String employeeId : new LinkedHashSet<>(employeeIds)) {
+            Compensation cachedCompensation = latestCompensationCache.getIfPresent(employeeId);
+            if (cachedCompensation != null) {
+                compensations.add(cachedCompensation);
+            } else {
+                uncachedEmployeeIds.add(employeeId);
+            }
+        }
+
+        if (!uncachedEmployeeIds.isEmpty()) {
+            long compensationsCreatedBeforeFind = compensationsCreated.get();
+            for (Compensation compensation : compensationRepository.findLatestByEmployeeIdIn(uncachedEmployeeIds)) {
+                cache(compensation, compensationsCreatedBeforeFind);
+                compensations.add(compensation);
+            }
+        }
+
+        Map<String, Compensation> compensationsByEmployeeId = new LinkedHashMap<>();
+        for (Compensation compensation : hydrate(compensations)) {
+            compensationsByEmployeeId.put(compensation.getEmployeeId(), compensation);
+        }
+
+        return compensationsByEmployeeId;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public Compensation findByEmployeeIdAsOf(String employeeId, LocalDate asOf) throws NotFoundException {
+        LOG.debug("Finding compensation by employee ID [{}] as of [{}]", employeeId, asOf);
+
+        // The most recent Compensation is also the one in effect on any date after it took effect
+        Compensation cachedCompensation = latestCompensationCache.getIfPresent(employeeId);
+        if (cachedCompensation != null && cachedCompensation.getEffectiveDate() != null
+                && !cachedCompensation.getEffectiveDate().isAfter(asOf)) {
+            return hydrate(cachedCompensation);
+        }
+
+        Compensation compensation = compensationRepository
+                .findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDescIdDesc(employeeId, asOf);
+
+        if (compensation == null) {
+            throw new NotFoundException("Compensation not found for employee: " + employeeId + " as of " + asOf);
+        }
+
+        return hydrate(compensation);
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public CompensationHistory findHistoryByEmployeeId(String employeeId, String cursor, int limit) {
+        LOG.debug("Finding compensation history by employee ID [{}] after cursor [{}] with limit [{}]", employeeId,
+                cursor, limit);
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        LocalDate afterEffectiveDate = null;
+        String afterId = null;
+        if (cursor != null) {
+            String[] position = decodeCursor(cursor);
+            afterEffectiveDate = position[0].isEmpty() ? null : LocalDate.parse(position[0]);
+            afterId = position[1];
+        }
+
+        // Fetch one more than the page holds to tell whether there is a next page without another query
+        int pageSize = Math.min(limit, maxHistoryPageSize);
+        List<Compensation> compensations = compensationRepository.findHistoryPage(employeeId, afterEffectiveDate,
+                afterId, pageSize + 1);
+        if (compensations.size() <= pageSize) {
+            return new CompensationHistory(hydrate(compensations), null);
+        }
+
+        List<Compensation> page = hydrate(compensations.subList(0, pageSize));
+        return new CompensationHistory(page, encodeCursor(page.get(pageSize - 1)));
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public PayrollRollup getPayrollRollup(String employeeId) throws NotFoundException {
+        LOG.debug("Rolling up payroll under employee ID [{}]", employeeId);
+
+        PayrollRollup payrollRollup = orgGraphIndex.getPayrollRollup(employeeId);
+        if (payrollRollup != null) {
+            return payrollRollup;
+        }
+
+        if (employeeRepository.findByEmployeeId(employeeId) == null) {
+            throw new NotFoundException("Invalid employeeId: " + employeeId);
+        }
+
+        throw new IllegalStateException("Reporting hierarchy is not a tree, payroll under employee " + employeeId
+                + " is not well defined");
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public CacheStatistics getCacheStatistics() {
+        CacheStats stats = latestCompensationCache.stats();
+
+        return new CacheStatistics(latestCompensationCache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount());
+    }
+
+    /**
+     * Caches a Compensation read from the repository as its Employee's most recent, unless a Compensation was created
+     * since the read started
+     */
+    private void cache(Compensation compensation, long compensationsCreatedBeforeFind) {
+        latestCompensationCache.asMap().compute(compensation.getEmployeeId(), (id, currentlyCachedCompensation) ->
+                compensationsCreated.get() == compensationsCreatedBeforeFind
+                        ? mostRecent(currentlyCachedCompensation, compensation)
+                        : currentlyCachedCompensation);
+    }
+
+    private Compensation hydrate(Compensation compensation) {
+        return hydrate(Collections.singletonList(compensation)).get(0);
+    }
+
+    /**
+     * Fills in the current Employee of each of the Compensations, looking up every Employee they are for at once.
+     * Compensations for an Employee that can't be found are left with an Employee holding only its employeeId.
+     *
+     * @return copies of the Compensations with their Employees filled in
+     */
+    private List<Compensation> hydrate(List<Compensation> compensations) {
+        Set<String> employeeIds = new LinkedHashSet<>();
+        for (Compensation compensation : compensations) {
+            employeeIds.add(compensation.getEmployeeId());
+        }
+        Map<String, Employee> employees = employeeService.readAll(employeeIds);
+
+        List<Compensation> hydratedCompensations = new ArrayList<>(compensations.size());
+        for (Compensation compensation : compensations) {
+            Employee employee = employees.get(compensation.getEmployeeId());
+            if (employee == null) {
+                employee = new Employee();
+                employee.setEmployeeId(compensation.getEmployeeId());
+            }
+            hydratedCompensations.add(compensation.withEmployee(employee));
+        }
+
+        return hydratedCompensations;
+    }
+
+    /**
+     * Encodes the position of the last Compensation on a page as an opaque cursor, a missing effectiveDate is encoded
+     * as an empty first segment
+     */
+    private static String encodeCursor(Compensation compensation) {
+        LocalDate effectiveDate = compensation.getEffectiveDate();
+        String position = (effectiveDate == null ? "" : effectiveDate.toString()) + "/" + compensation.getId();
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into the effectiveDate and id of the last Compensation on the previous page, the effectiveDate
+     * is empty when that Compensation has none
+     */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("/", -1);
+            if (position.length == 2 && ObjectId.isValid(position[1])) {
+                if (!position[0].isEmpty()) {
+                    LocalDate.parse(position[0]);
+                }
+                return position;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            LOG.debug("Could not decode cursor [{}]", cursor, e);
+        }
+
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    /**
+     * Picks the Compensation with the later effectiveDate, or the greater id when they share one, the same order the
+     * repository finds the latest Compensation in. A missing effectiveDate is earlier than any other.
+     */
+    private static Compensation mostRecent(Compensation current, Compensation candidate) {
+        if (current == null || RECENCY.compare(candidate, current) > 0) {
+            return candidate;
+        }
+
+        return current;
     }
 }
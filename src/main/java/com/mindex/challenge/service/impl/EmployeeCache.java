@@ -0,0 +1,162 @@
+package com.mindex.challenge.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent, size bounded cache of stored Employees keyed by employeeId.
+ * <p>
+ * Every employeeId hashes to one of a fixed number of version stripes. Writes to an employee hold that stripe's lock
+ * while they write to the repository, then bump the stripe's version and replace the cached entry, so cached entries
+ * are always replaced in the order the writes were made. A cache fill records the stripe's version before it reads
+ * from the repository and is only installed if the version has not moved since, so a fill that raced with a write can
+ * never leave the Employee as it was before that write in the cache.
+ * <p>
+ * Employees are copied on the way in and out, down through their directReports, so callers are free to change what
+ * they are given, lists included.
+ */
+@Component
+public class EmployeeCache {
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Cache<String, Entry> cache;
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final Object[] writeLocks = new Object[VERSION_STRIPES];
+
+    public EmployeeCache(@Value("${challenge.cache.employee.maximum-size:100000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+
+        for (int stripe = 0; stripe < VERSION_STRIPES; stripe++) {
+            writeLocks[stripe] = new Object();
+        }
+    }
+
+    /**
+     * Finds the cached Employee with the given id
+     *
+     * @param employeeId the id of the Employee
+     * @return a copy of the cached Employee, or null if it is not cached
+     */
+    public Employee get(String employeeId) {
+        Entry entry = cache.getIfPresent(employeeId);
+
+        return entry == null ? null : copy(entry.employee);
+    }
+
+    /**
+     * Gets the current version for the given id, to be recorded before reading the Employee for {@link #fill}
+     *
+     * @param employeeId the id of the Employee about to be read
+     * @return the version of the Employee's stripe
+     */
+    public long getVersion(String employeeId) {
+        return versions.get(stripe(employeeId));
+    }
+
+    /**
+     * Caches an Employee read from the repository, unless the Employee has been cached or written since the version
+     * was recorded
+     *
+     * @param employee             the Employee that was read
+     * @param versionBeforeReading the version recorded with {@link #getVersion} before the Employee was read
+     */
+    public void fill(Employee employee, long versionBeforeReading) {
+        int stripe = stripe(employee.getEmployeeId());
+        Employee copy = copy(employee);
+
+        cache.asMap().compute(employee.getEmployeeId(), (employeeId, entry) ->
+                entry == null && versions.get(stripe) == versionBeforeReading
+                        ? new Entry(versionBeforeReading, copy)
+                        : entry);
+    }
+
+    /**
+     * Writes the given Employee with the writer and then caches it, serialized with every other write to the same
+     * version stripe
+     *
+     * @param employee the Employee to write
+     * @param writer   writes the Employee to the repository
+     */
+    public void write(Employee employee, Consumer<Employee> writer) {
+        int stripe = stripe(employee.getEmployeeId());
+
+        synchronized (writeLocks[stripe]) {
+            writer.accept(employee);
+
+            long version = versions.incrementAndGet(stripe);
+            Employee copy = copy(employee);
+            cache.asMap().compute(employee.getEmployeeId(), (employeeId, entry) ->
+                    entry == null || entry.version < version ? new Entry(version, copy) : entry);
+        }
+    }
+
+    /**
+     * Writes to the Employee with the given id with the writer and then evicts it, for writes that only change part of
+     * the Employee, serialized with every other write to the same version stripe
+     *
+     * @param employeeId the id of the Employee to write
+     * @param writer     writes to the Employee in the repository
+     * @return the result of the writer
+     */
+    public <T> T writeAndEvict(String employeeId, Supplier<T> writer) {
+        int stripe = stripe(employeeId);
+
+        synchronized (writeLocks[stripe]) {
+            T result = writer.get();
+
+            versions.incrementAndGet(stripe);
+            cache.invalidate(employeeId);
+
+            return result;
+        }
+    }
+
+    Cache<String, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * Copies the Employee along with its directReports list and the reports in it, so the cached entry never shares a
+     * list with an Employee outside the cache
+     */
+    private static Employee copy(Employee employee) {
+        Employee copy = new Employee(employee);
+        if (employee.getDirectReports() != null) {
+            List<Employee> directReports = new ArrayList<>(employee.getDirectReports().size());
+            for (Employee report : employee.getDirectReports()) {
+                directReports.add(report == null ? null : copy(report));
+            }
+            copy.setDirectReports(directReports);
+        }
+
+        return copy;
+    }
+
+    private static int stripe(String employeeId) {
+        return (employeeId.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final Employee employee;
+
+        private Entry(long version, Employee employee) {
+            this.version = version;
+            this.employee = employee;
+        }
+    }
+}
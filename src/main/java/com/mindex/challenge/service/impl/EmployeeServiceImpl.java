@@ -1,45 +1,169 @@
 package com.mindex.challenge.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.dao.OrgGraphIndex;
+import com.mindex.challenge.data.BulkCreateResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.ReportsPage;
 import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.exceptions.PreconditionFailedException;
 import com.mindex.challenge.service.EmployeeService;
-import org.apache.commons.lang3.ObjectUtils;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
-import static java.util.Collections.emptyList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
 
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeServiceImpl.class);
 
+    private static final String SERVICE_TIMER = "challenge.service";
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private MaterializedReportCounts reportCounts;
+
+    @Autowired
+    private Executor reportingStructureExecutor;
+
+    private final DistributionSummary traversalDepth;
+
+    private final DistributionSummary traversalNodes;
+
+    @Value("${challenge.reporting-structure.use-org-graph-index:true}")
+    private boolean useOrgGraphIndex;
+
+    @Value("${challenge.reporting-structure.fetch-chunk-size:200}")
+    private int fetchChunkSize;
+
+    @Value("${challenge.reporting-structure.max-concurrent-fetches-per-request:4}")
+    private int maxConcurrentFetchesPerRequest;
+
+    @Value("${challenge.reports.max-page-size:100}")
+    private int maxReportsPageSize;
+
+    public EmployeeServiceImpl(MeterRegistry meterRegistry) {
+        traversalDepth = DistributionSummary.builder("challenge.reporting.structure.depth")
+                .description("Levels of reports loaded to build a reporting structure")
+                .register(meterRegistry);
+        traversalNodes = DistributionSummary.builder("challenge.reporting.structure.nodes")
+                .description("Reports loaded to build a reporting structure")
+                .register(meterRegistry);
+    }
+
     @Override
+    @Timed(SERVICE_TIMER)
     public Employee create(Employee employee) {
         LOG.debug("Creating employee [{}]", employee);
 
         employee.setEmployeeId(UUID.randomUUID().toString());
-        employeeRepository.insert(employee);
+        // No manager can list an id that was only just generated, so only the new Employee's own count is needed
+        reportCounts.countNew(Collections.singletonList(employee));
+        employeeCache.write(employee, employeeRepository::insert);
 
         return employee;
     }
 
     @Override
+    @Timed(SERVICE_TIMER)
+    public List<BulkCreateResult> createAll(List<Employee> employees) {
+        LOG.debug("Creating [{}] employees", employees.size());
+
+        if (employees.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        for (Employee employee : employees) {
+            employee.setEmployeeId(UUID.randomUUID().toString());
+        }
+        reportCounts.countNew(employees);
+
+        try {
+            employeeRepository.insert(employees);
+        } catch (DataAccessException e) {
+            LOG.warn("Batch insert of [{}] employees failed, inserting the rest one at a time", employees.size(), e);
+            return insertRemaining(employees);
+        }
+
+        List<BulkCreateResult> results = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            results.add(BulkCreateResult.created(employee.getEmployeeId()));
+        }
+
+        return results;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
     public Employee read(String id) throws NotFoundException {
         LOG.debug("Finding employee with id [{}]", id);
 
-        Employee employee = employeeRepository.findByEmployeeId(id);
+        Employee employee = employeeCache.get(id);
+        if (employee != null) {
+            return employee;
+        }
+
+        long versionBeforeReading = employeeCache.getVersion(id);
+        employee = employeeRepository.findByEmployeeId(id);
+
+        if (employee == null) {
+            throw new NotFoundException("Invalid employeeId: " + id);
+        }
+
+        employeeCache.fill(employee, versionBeforeReading);
+        return employee;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public Employee read(String id, Set<String> fields) throws NotFoundException {
+        if (fields == null) {
+            return read(id);
+        }
+
+        checkFields(fields);
+        LOG.debug("Finding fields [{}] of employee with id [{}]", fields, id);
 
+        Employee employee = employeeCache.get(id);
+        if (employee != null) {
+            return employee;
+        }
+
+        // Only part of the Employee is read, so it is not cached
+        employee = employeeRepository.findFieldsByEmployeeId(id, fields);
         if (employee == null) {
             throw new NotFoundException("Invalid employeeId: " + id);
         }
@@ -48,38 +172,429 @@ public class EmployeeServiceImpl implements EmployeeService {
     }
 
     @Override
+    @Timed(SERVICE_TIMER)
+    public Map<String, Employee> readAll(Collection<String> ids) {
+        LOG.debug("Finding [{}] employees by id", ids.size());
+
+        return readAllThroughCache(new LinkedHashSet<>(ids), null);
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public long readVersion(String id) throws NotFoundException {
+        LOG.debug("Finding version of employee with id [{}]", id);
+
+        Employee employee = employeeCache.get(id);
+        if (employee != null && employee.getVersion() != null) {
+            return employee.getVersion();
+        }
+
+        Long version = employeeRepository.findVersionByEmployeeId(id);
+        if (version == null) {
+            throw new NotFoundException("Invalid employeeId: " + id);
+        }
+
+        return version;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
     public Employee update(Employee employee) {
         LOG.debug("Updating employee [{}]", employee);
 
-        return employeeRepository.save(employee);
+        employeeCache.write(employee, written -> reportCounts.applyWrite(written.getEmployeeId(),
+                employeeRepository.upsertByEmployeeId(written), written));
+        orgGraphIndex.put(employee);
+
+        return employee;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public Employee update(Employee employee, Long expectedVersion) throws PreconditionFailedException {
+        if (expectedVersion == null) {
+            return update(employee);
+        }
+
+        LOG.debug("Updating employee [{}] at version [{}]", employee, expectedVersion);
+
+        if (!employeeCache.writeAndEvict(employee.getEmployeeId(), () -> {
+            Employee previous = employeeRepository.replaceByEmployeeId(employee, expectedVersion);
+            if (previous == null) {
+                return false;
+            }
+
+            reportCounts.applyWrite(employee.getEmployeeId(), previous, employee);
+            return true;
+        })) {
+            throw new PreconditionFailedException(
+                    "Employee " + employee.getEmployeeId() + " is not at version " + expectedVersion);
+        }
+        orgGraphIndex.put(employee);
+
+        return employee;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public Employee patch(String id, EmployeePatch patch) throws NotFoundException {
+        LOG.debug("Patching employee with id [{}] with [{}]", id, patch);
+
+        if (!employeeCache.writeAndEvict(id, () -> {
+            EmployeePatch change = employeeRepository.patchByEmployeeId(id, patch);
+            if (change == null) {
+                return false;
+            }
+
+            reportCounts.applyPatch(id, change);
+            return true;
+        })) {
+            throw new NotFoundException("Invalid employeeId: " + id);
+        }
+
+        return patched(id);
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public Employee patch(String id, EmployeePatch patch, Long expectedVersion)
+            throws NotFoundException, PreconditionFailedException {
+        if (expectedVersion == null) {
+            return patch(id, patch);
+        }
+
+        LOG.debug("Patching employee with id [{}] at version [{}] with [{}]", id, expectedVersion, patch);
+
+        if (!employeeCache.writeAndEvict(id, () -> {
+            EmployeePatch change = employeeRepository.patchByEmployeeId(id, patch, expectedVersion);
+            if (change == null) {
+                return false;
+            }
+
+            reportCounts.applyPatch(id, change);
+            return true;
+        })) {
+            // Tell a missing Employee apart from one another write got to first
+            readVersion(id);
+            throw new PreconditionFailedException("Employee " + id + " is not at version " + expectedVersion);
+        }
+
+        return patched(id);
     }
 
     @Override
+    @Timed(SERVICE_TIMER)
     public ReportingStructure getReportingStructure(String id) throws NotFoundException {
-        LOG.debug("Finding reporting structure for employee with id [{}]", id);
+        return getReportingStructure(id, null);
+    }
 
-        Employee employee = read(id);
-        int numberOfReports = fillOutReportingStructure(employee);
+    @Override
+    @Timed(SERVICE_TIMER)
+    public ReportingStructure getReportingStructure(String id, Integer maxDepth) throws NotFoundException {
+        return getReportingStructure(id, maxDepth, null);
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public ReportingStructure getReportingStructure(String id, Integer maxDepth, Set<String> fields)
+            throws NotFoundException {
+        LOG.debug("Finding reporting structure for employee with id [{}], max depth [{}] and fields [{}]", id,
+                maxDepth, fields);
+
+        Set<String> nodeFields = nodeFields(fields);
+        ReportingStructureTraversal.EmployeeLoader employeeLoader = ids -> readAll(ids, nodeFields);
+
+        Employee employee = employeeLoader.loadAll(Collections.singleton(id)).get(id);
+        Integer knownNumberOfReports = findNumberOfReports(id);
+
+        ReportingStructureTraversal traversal = new ReportingStructureTraversal(employeeLoader);
+        int numberOfReports = traversal.fillOut(employee, maxDepth, knownNumberOfReports == null);
+        traversalDepth.record(traversal.getLevelsLoaded());
+        traversalNodes.record(numberOfReports);
+
+        if (knownNumberOfReports != null) {
+            numberOfReports = knownNumberOfReports;
+        }
 
         return new ReportingStructure(employee, numberOfReports);
     }
 
+    @Override
+    @Timed(SERVICE_TIMER)
+    public int writeReportingStructure(String id, Integer maxDepth, Set<String> fields, JsonGenerator generator)
+            throws NotFoundException, IOException {
+        LOG.debug("Writing reporting structure for employee with id [{}], max depth [{}] and fields [{}]", id,
+                maxDepth, fields);
+
+        Set<String> nodeFields = nodeFields(fields);
+        Employee employee = readAll(Collections.singleton(id), nodeFields).get(id);
+        Integer knownNumberOfReports = findNumberOfReports(id);
+        // The index only counts the reports of an Employee while the hierarchy is a forest
+        boolean forest = useOrgGraphIndex && orgGraphIndex.getNumberOfReports(id) != null;
+
+        // Reports are loaded one manager at a time as the tree is walked, so missing ones are skipped over rather
+        // than failing a response that is already under way
+        StreamingReportingStructureWriter writer = new StreamingReportingStructureWriter(
+                ids -> useOrgGraphIndex ? orgGraphIndex.findAll(ids) : readAllThroughCache(ids, nodeFields),
+                generator, fields);
+        int numberOfReports = writer.write(employee, maxDepth, knownNumberOfReports, forest);
+        traversalDepth.record(writer.getLevelsLoaded());
+        traversalNodes.record(numberOfReports);
+
+        return numberOfReports;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public int getNumberOfReports(String id) throws NotFoundException {
+        LOG.debug("Finding number of reports under employee with id [{}]", id);
+
+        Integer numberOfReports = findNumberOfReports(id);
+        if (numberOfReports != null) {
+            return numberOfReports;
+        }
+
+        // Not counted since the Employee was loaded or its count was cleared, the verifier will store it
+        return getReportingStructure(id, 0).getNumberOfReports();
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public boolean isReportOf(String id, String managerId) throws NotFoundException {
+        LOG.debug("Checking whether employee with id [{}] reports to [{}]", id, managerId);
+
+        Boolean reportOf = orgGraphIndex.isReportOf(id, managerId);
+        if (reportOf != null) {
+            return reportOf;
+        }
+
+        read(id);
+        read(managerId);
+        throw new IllegalStateException("Reporting hierarchy is not a tree, reports of employee " + managerId
+                + " are not well defined");
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public ReportsPage findReports(String id, String cursor, int limit) throws NotFoundException {
+        LOG.debug("Finding reports of employee with id [{}] after cursor [{}] with limit [{}]", id, cursor, limit);
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        ReportsPage reportsPage = orgGraphIndex.findReports(id, cursor, Math.min(limit, maxReportsPageSize));
+        if (reportsPage != null) {
+            return reportsPage;
+        }
+
+        read(id);
+        throw new IllegalStateException("Reporting hierarchy is not a tree, reports of employee " + id
+                + " are not well defined");
+    }
+
     /**
-     * Recursively fills out the reporting structure for the given Employee by getting their direct reports and all the
-     * report's reports, and returns the total number of reports for the Employee
+     * Looks up the number of reports under an Employee without walking the hierarchy. Every numberOfReports the service
+     * returns comes from here, so the same count is given whichever way it is asked for. The count stored on the
+     * Employee is the one source of truth, the org graph index only being used while the stored count is not known.
      *
-     * @param employee the Employee to fill out the reporting structure for
-     * @return the total number of reports for the employee
+     * @return the number of reports, or null if the reports have to be walked to count them
+     * @throws NotFoundException if there is no Employee with the id
      */
-    private int fillOutReportingStructure(Employee employee) throws NotFoundException {
-        List<Employee> directReports = ObjectUtils.defaultIfNull(employee.getDirectReports(), emptyList());
-        int numberOfReports = directReports.size();
-        for (Employee directReport : directReports) {
-            Employee fetchedDirectReport = read(directReport.getEmployeeId());
-            directReport.setDirectReports(fetchedDirectReport.getDirectReports());
-            numberOfReports += fillOutReportingStructure(read(directReport.getEmployeeId()));
+    private Integer findNumberOfReports(String id) throws NotFoundException {
+        Map<String, Integer> storedNumberOfReports = employeeRepository.findNumberOfReportsByEmployeeIdIn(
+                Collections.singleton(id));
+        if (!storedNumberOfReports.containsKey(id)) {
+            throw new NotFoundException("Invalid employeeId: " + id);
+        }
+
+        Integer numberOfReports = storedNumberOfReports.get(id);
+        if (numberOfReports == null && useOrgGraphIndex) {
+            numberOfReports = orgGraphIndex.getNumberOfReports(id);
         }
 
         return numberOfReports;
     }
+
+    /**
+     * Reads back the Employee a patch was applied to, so the response and the org graph index see the whole of it
+     */
+    private Employee patched(String id) throws NotFoundException {
+        Employee employee = read(id);
+        orgGraphIndex.put(employee);
+
+        return employee;
+    }
+
+    /**
+     * Inserts each of the given Employees that is not already stored on its own, after a batch insert of them failed
+     * part way through
+     *
+     * @param employees the Employees that were being inserted
+     * @return the outcome of inserting each Employee, in the same order as employees
+     */
+    private List<BulkCreateResult> insertRemaining(List<Employee> employees) {
+        Set<String> ids = new HashSet<>();
+        for (Employee employee : employees) {
+            ids.add(employee.getEmployeeId());
+        }
+
+        Set<String> insertedIds = new HashSet<>();
+        for (Employee insertedEmployee : employeeRepository.findByEmployeeIdIn(ids)) {
+            insertedIds.add(insertedEmployee.getEmployeeId());
+        }
+
+        List<BulkCreateResult> results = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            if (!insertedIds.contains(employee.getEmployeeId())) {
+                try {
+                    employeeRepository.insert(employee);
+                } catch (DataAccessException e) {
+                    results.add(BulkCreateResult.failed(e.getMessage()));
+                    continue;
+                }
+            }
+
+            results.add(BulkCreateResult.created(employee.getEmployeeId()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Fetches the Employees with the given ids from the org graph index, or from the employee cache and the repository
+     * when the index is not in use
+     *
+     * @param ids    the ids of the Employees to fetch
+     * @param fields the names of the fields to read from the repository, or null to read whole Employees
+     * @return the fetched Employees keyed by employeeId
+     * @throws NotFoundException if any of the Employees could not be found
+     */
+    private Map<String, Employee> readAll(Set<String> ids, Set<String> fields) throws NotFoundException {
+        LOG.debug("Finding [{}] employees by id", ids.size());
+
+        Map<String, Employee> fetchedEmployees;
+        if (useOrgGraphIndex) {
+            fetchedEmployees = orgGraphIndex.findAll(ids);
+        } else {
+            fetchedEmployees = readAllThroughCache(ids, fields);
+        }
+
+        for (String id : ids) {
+            if (!fetchedEmployees.containsKey(id)) {
+                throw new NotFoundException("Invalid employeeId: " + id);
+            }
+        }
+
+        return fetchedEmployees;
+    }
+
+    /**
+     * Fetches the Employees with the given ids from the employee cache, reading any that are not cached from the
+     * repository with a single query and caching them. Employees that are only partly read are not cached.
+     *
+     * @param ids    the ids of the Employees to fetch
+     * @param fields the names of the fields to read from the repository, or null to read whole Employees
+     * @return the fetched Employees keyed by employeeId, ids that could not be found are left out
+     */
+    private Map<String, Employee> readAllThroughCache(Set<String> ids, Set<String> fields) {
+        Map<String, Employee> fetchedEmployees = new HashMap<>();
+        Map<String, Long> versionsBeforeReading = new HashMap<>();
+        for (String id : ids) {
+            Employee cachedEmployee = employeeCache.get(id);
+            if (cachedEmployee != null) {
+                fetchedEmployees.put(id, cachedEmployee);
+            } else {
+                versionsBeforeReading.put(id, employeeCache.getVersion(id));
+            }
+        }
+
+        if (versionsBeforeReading.isEmpty()) {
+            return fetchedEmployees;
+        }
+
+        for (Employee readEmployee : findByEmployeeIdIn(versionsBeforeReading.keySet(), fields)) {
+            if (fields == null) {
+                employeeCache.fill(readEmployee, versionsBeforeReading.get(readEmployee.getEmployeeId()));
+            }
+            fetchedEmployees.put(readEmployee.getEmployeeId(), readEmployee);
+        }
+
+        return fetchedEmployees;
+    }
+
+    /**
+     * Reads the Employees with the given ids from the repository. Large sets of ids are split into chunks that are
+     * read in parallel on the reporting structure executor, with at most a fixed number of chunks in flight for each
+     * call so a single wide org can't take over the whole pool.
+     *
+     * @param ids    the ids of the Employees to read
+     * @param fields the names of the fields to read, or null to read whole Employees
+     * @return the Employees that were found
+     */
+    private List<Employee> findByEmployeeIdIn(Collection<String> ids, Set<String> fields) {
+        if (ids.size() <= fetchChunkSize) {
+            return findChunk(ids, fields);
+        }
+
+        List<String> remainingIds = new ArrayList<>(ids);
+        List<CompletableFuture<List<Employee>>> fetches = new ArrayList<>();
+        Semaphore permits = new Semaphore(maxConcurrentFetchesPerRequest);
+        for (int from = 0; from < remainingIds.size(); from += fetchChunkSize) {
+            List<String> chunk = remainingIds.subList(from, Math.min(from + fetchChunkSize, remainingIds.size()));
+
+            permits.acquireUninterruptibly();
+            fetches.add(CompletableFuture.supplyAsync(() -> findChunk(chunk, fields),
+                    reportingStructureExecutor)
+                    .whenComplete((employees, e) -> permits.release()));
+        }
+
+        List<Employee> employees = new ArrayList<>(ids.size());
+        for (CompletableFuture<List<Employee>> fetch : fetches) {
+            try {
+                employees.addAll(fetch.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        return employees;
+    }
+
+    private List<Employee> findChunk(Collection<String> ids, Set<String> fields) {
+        return fields == null
+                ? employeeRepository.findByEmployeeIdIn(ids)
+                : employeeRepository.findFieldsByEmployeeIdIn(ids, fields);
+    }
+
+    /**
+     * Adds the directReports a traversal follows to the fields asked for of each Employee in a reporting structure
+     *
+     * @return the fields to read of each Employee, or null to read whole Employees
+     * @throws IllegalArgumentException if any of the fields is not a field of an Employee
+     */
+    private static Set<String> nodeFields(Set<String> fields) {
+        if (fields == null) {
+            return null;
+        }
+
+        checkFields(fields);
+        Set<String> nodeFields = new HashSet<>(fields);
+        nodeFields.add("directReports");
+        return nodeFields;
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of the given names is not a field of an Employee
+     */
+    private static void checkFields(Set<String> fields) {
+        for (String field : fields) {
+            if (!Employee.FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown employee field: " + field);
+            }
+        }
+    }
 }
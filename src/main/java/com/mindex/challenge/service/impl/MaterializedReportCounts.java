@@ -0,0 +1,359 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.dao.OrgGraphIndex;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the numberOfReports stored on each Employee up to date with the hierarchy.
+ * <p>
+ * Every write to an Employee's directReports hands back the directReports it replaced in the same atomic update, so
+ * the reports it added and removed are exactly those of that write, however many other writes are racing with it. The
+ * change in the number of reports under the Employee is worked out from the stored counts of those reports, and added
+ * to the Employee and every one of its managers above it in a single update. The counts of the moved reports and the
+ * chain of managers are still read after the write, so a concurrent move further up or down the hierarchy, or a
+ * hierarchy that is not a forest, can leave counts drifting. A scheduled verifier recomputes every count from the
+ * hierarchy and repairs the ones that are off.
+ * <p>
+ * The stored counts are the one source of the numberOfReports the service hands out, since they are shared by every
+ * instance and survive restarts. The {@link OrgGraphIndex} keeps its own counts for its payroll rollups, and is only
+ * used to count an Employee's reports while its stored count is not known.
+ */
+@Component
+public class MaterializedReportCounts {
+    private static final Logger LOG = LoggerFactory.getLogger(MaterializedReportCounts.class);
+
+    private static final List<String> HIERARCHY_FIELDS = Arrays.asList("directReports", "numberOfReports");
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Value("${challenge.reporting-structure.use-org-graph-index:true}")
+    private boolean useOrgGraphIndex;
+
+    /**
+     * Works out the numberOfReports of new Employees from the stored counts of their directReports, with a single
+     * lookup for all of them. Reports that can't be found are not counted.
+     *
+     * @param employees the Employees about to be inserted, each has its numberOfReports set, or left null if the count
+     *                  of any of its reports is not known yet
+     */
+    void countNew(List<Employee> employees) {
+        Set<String> reportIds = new HashSet<>();
+        for (Employee employee : employees) {
+            reportIds.addAll(ids(employee.getDirectReports()));
+        }
+        Map<String, Integer> counts = reportIds.isEmpty()
+                ? Collections.emptyMap()
+                : employeeRepository.findNumberOfReportsByEmployeeIdIn(reportIds);
+
+        for (Employee employee : employees) {
+            employee.setNumberOfReports(sum(ids(employee.getDirectReports()), counts));
+        }
+    }
+
+    /**
+     * Applies a write that replaced an Employee's directReports to the stored numberOfReports of the Employee and its
+     * managers
+     *
+     * @param employeeId the id of the Employee that was written
+     * @param previous   the Employee's directReports as the write replaced them, or null if the write created the
+     *                   Employee
+     * @param current    the Employee's directReports after the write
+     */
+    void applyWrite(String employeeId, Employee previous, Employee current) {
+        if (previous == null) {
+            applyCreate(employeeId, current);
+            return;
+        }
+
+        Set<String> previousReportIds = ids(previous.getDirectReports());
+        Set<String> currentReportIds = ids(current.getDirectReports());
+        Set<String> added = new LinkedHashSet<>(currentReportIds);
+        added.removeAll(previousReportIds);
+        Set<String> removed = new LinkedHashSet<>(previousReportIds);
+        removed.removeAll(currentReportIds);
+        apply(employeeId, added, removed);
+    }
+
+    /**
+     * Applies a patch to an Employee's directReports to the stored numberOfReports of the Employee and its managers
+     *
+     * @param employeeId the id of the Employee that was patched
+     * @param change     the reports the patch actually added and removed, as the repository reported them
+     */
+    void applyPatch(String employeeId, EmployeePatch change) {
+        Set<String> added = new LinkedHashSet<>(change.getAddDirectReports() == null
+                ? Collections.emptyList()
+                : change.getAddDirectReports());
+        Set<String> removed = new LinkedHashSet<>(change.getRemoveDirectReports() == null
+                ? Collections.emptyList()
+                : change.getRemoveDirectReports());
+        // A report that was pulled and added back has not moved
+        Set<String> readded = new HashSet<>(added);
+        readded.retainAll(removed);
+        added.removeAll(readded);
+        removed.removeAll(readded);
+        apply(employeeId, added, removed);
+    }
+
+    /**
+     * Recomputes the numberOfReports of every Employee from the hierarchy, and stores the ones that differ from what is
+     * stored. A count written since the hierarchy was read is left for the next run rather than overwritten. The
+     * Employees are streamed through a cursor with only the fields the count needs, so only their ids are held at
+     * once.
+     *
+     * @return the number of counts repaired
+     */
+    @Scheduled(initialDelayString = "${challenge.report-counts.verify-initial-delay-ms:60000}",
+            fixedDelayString = "${challenge.report-counts.verify-interval-ms:600000}")
+    public long verify() {
+        Map<String, Set<String>> reportIds = new HashMap<>();
+        Map<String, Integer> storedCounts = new HashMap<>();
+        try (CloseableIterator<Employee> employees = employeeRepository.streamFields(HIERARCHY_FIELDS)) {
+            while (employees.hasNext()) {
+                Employee employee = employees.next();
+                reportIds.put(employee.getEmployeeId(), ids(employee.getDirectReports()));
+                storedCounts.put(employee.getEmployeeId(), employee.getNumberOfReports());
+            }
+        }
+
+        Map<String, Integer> counts = count(reportIds);
+        Map<String, Integer> repairs = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (!Objects.equals(entry.getValue(), storedCounts.get(entry.getKey()))) {
+                repairs.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        long repaired = employeeRepository.replaceNumberOfReports(repairs, storedCounts);
+        if (repaired > 0) {
+            LOG.info("Repaired the numberOfReports of [{}] of [{}] employees", repaired, counts.size());
+        }
+        return repaired;
+    }
+
+    /**
+     * Adds the reports under the added reports to the Employee and its managers, and takes away the ones under the
+     * removed reports, clearing the counts instead if those of the moved reports are not known
+     */
+    private void apply(String employeeId, Set<String> added, Set<String> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        Set<String> changed = new HashSet<>(added);
+        changed.addAll(removed);
+        Map<String, Integer> counts = employeeRepository.findNumberOfReportsByEmployeeIdIn(changed);
+        Integer addedReports = sum(added, counts);
+        Integer removedReports = sum(removed, counts);
+
+        Set<String> chain = managersOf(employeeId);
+        chain.add(employeeId);
+        if (addedReports == null || removedReports == null) {
+            LOG.debug("Counts of reports moved under employee [{}] are not known, clearing [{}] counts", employeeId,
+                    chain.size());
+            employeeRepository.unsetNumberOfReports(chain);
+            return;
+        }
+
+        int delta = addedReports - removedReports;
+        if (delta != 0) {
+            LOG.debug("Adding [{}] to the numberOfReports of employee [{}] and its [{}] managers", delta, employeeId,
+                    chain.size() - 1);
+            employeeRepository.incrementNumberOfReports(chain, delta);
+        }
+    }
+
+    /**
+     * Sets the count of an Employee that was just created by a write, and adds it and its reports to any managers that
+     * already listed it among their directReports
+     */
+    private void applyCreate(String employeeId, Employee current) {
+        Set<String> currentReportIds = ids(current.getDirectReports());
+        Integer numberOfReports = sum(currentReportIds, currentReportIds.isEmpty()
+                ? Collections.emptyMap()
+                : employeeRepository.findNumberOfReportsByEmployeeIdIn(currentReportIds));
+        if (numberOfReports != null) {
+            employeeRepository.replaceNumberOfReports(Collections.singletonMap(employeeId, numberOfReports),
+                    Collections.emptyMap());
+        }
+
+        Set<String> managers = managersOf(employeeId);
+        if (managers.isEmpty()) {
+            return;
+        }
+        if (numberOfReports == null) {
+            employeeRepository.unsetNumberOfReports(managers);
+        } else {
+            employeeRepository.incrementNumberOfReports(managers, numberOfReports + 1);
+        }
+    }
+
+    /**
+     * Finds every Employee above the given one, from the org graph index's managers when it is in use and the
+     * hierarchy is a forest, otherwise with one query for each level of managers
+     */
+    private Set<String> managersOf(String employeeId) {
+        List<String> indexedManagerIds = useOrgGraphIndex ? orgGraphIndex.findManagerIds(employeeId) : null;
+        if (indexedManagerIds != null) {
+            return new LinkedHashSet<>(indexedManagerIds);
+        }
+
+        Set<String> managers = new LinkedHashSet<>();
+        Set<String> level = Collections.singleton(employeeId);
+        while (!level.isEmpty()) {
+            Set<String> nextLevel = new LinkedHashSet<>();
+            for (String managerId : employeeRepository.findManagerIdsByDirectReportIdIn(level)) {
+                // A cycle leads back to the Employee itself
+                if (!managerId.equals(employeeId) && managers.add(managerId)) {
+                    nextLevel.add(managerId);
+                }
+            }
+            level = nextLevel;
+        }
+
+        return managers;
+    }
+
+    /**
+     * Counts the distinct Employees under each Employee. A forest is counted in one pass by adding up the counts of
+     * each Employee's reports, anything else by walking the reports under each Employee in turn.
+     *
+     * @param reportIds the ids of the directReports of every Employee keyed by employeeId
+     * @return the number of reports under each Employee keyed by employeeId
+     */
+    private static Map<String, Integer> count(Map<String, Set<String>> reportIds) {
+        Map<String, Integer> counts = countForest(reportIds);
+        if (counts != null) {
+            return counts;
+        }
+
+        LOG.warn("Reporting hierarchy is not a tree, counting the reports under each of [{}] employees separately",
+                reportIds.size());
+        counts = new HashMap<>();
+        for (String employeeId : reportIds.keySet()) {
+            Set<String> visited = new HashSet<>();
+            visited.add(employeeId);
+            Deque<String> pending = new ArrayDeque<>(Collections.singleton(employeeId));
+            while (!pending.isEmpty()) {
+                for (String reportId : reportIds.get(pending.pop())) {
+                    if (reportIds.containsKey(reportId) && visited.add(reportId)) {
+                        pending.push(reportId);
+                    }
+                }
+            }
+            counts.put(employeeId, visited.size() - 1);
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return the number of reports under each Employee, or null if some Employee has more than one manager or is in a
+     * cycle
+     */
+    private static Map<String, Integer> countForest(Map<String, Set<String>> reportIds) {
+        Map<String, Integer> managerCounts = new HashMap<>();
+        for (Set<String> reports : reportIds.values()) {
+            for (String reportId : reports) {
+                if (reportIds.containsKey(reportId) && managerCounts.merge(reportId, 1, Integer::sum) > 1) {
+                    return null;
+                }
+            }
+        }
+
+        // Walks down from each Employee without a manager, counting each Employee once all its reports are counted
+        Map<String, Integer> counts = new HashMap<>();
+        for (String rootId : reportIds.keySet()) {
+            if (managerCounts.containsKey(rootId)) {
+                continue;
+            }
+
+            Deque<String> path = new ArrayDeque<>(Collections.singleton(rootId));
+            while (!path.isEmpty()) {
+                String employeeId = path.peek();
+                List<String> uncounted = new ArrayList<>();
+                int numberOfReports = 0;
+                for (String reportId : reportIds.get(employeeId)) {
+                    if (!reportIds.containsKey(reportId)) {
+                        continue;
+                    }
+                    Integer reportCount = counts.get(reportId);
+                    if (reportCount == null) {
+                        uncounted.add(reportId);
+                    } else {
+                        numberOfReports += reportCount + 1;
+                    }
+                }
+
+                if (uncounted.isEmpty()) {
+                    counts.put(employeeId, numberOfReports);
+                    path.pop();
+                } else {
+                    uncounted.forEach(path::push);
+                }
+            }
+        }
+
+        // Every Employee in a cycle has a manager, so none of them were reached
+        return counts.size() == reportIds.size() ? counts : null;
+    }
+
+    /**
+     * Adds up the given reports and the reports under them, reports that can't be found are not counted
+     *
+     * @return the total, or null if the count of any of the reports is not known
+     */
+    private static Integer sum(Set<String> reportIds, Map<String, Integer> counts) {
+        int total = 0;
+        for (String reportId : reportIds) {
+            if (!counts.containsKey(reportId)) {
+                continue;
+            }
+
+            Integer count = counts.get(reportId);
+            if (count == null) {
+                return null;
+            }
+            total += count + 1;
+        }
+
+        return total;
+    }
+
+    private static Set<String> ids(List<Employee> directReports) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (directReports != null) {
+            for (Employee report : directReports) {
+                ids.add(report.getEmployeeId());
+            }
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,64 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.OrgGraphIndex;
+import com.mindex.challenge.dao.reactive.ReactiveCompensationRepository;
+import com.mindex.challenge.dao.reactive.ReactiveEmployeeRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.service.ReactiveCompensationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveCompensationServiceImpl implements ReactiveCompensationService {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveCompensationServiceImpl.class);
+
+    @Autowired
+    private ReactiveCompensationRepository compensationRepository;
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Override
+    public Mono<Compensation> create(Compensation compensation) {
+        LOG.debug("Creating compensation [{}]", compensation);
+
+        return compensationRepository.insert(compensation)
+                .doOnNext(orgGraphIndex::put);
+    }
+
+    @Override
+    public Mono<Compensation> findByEmployeeId(String employeeId) {
+        LOG.debug("Finding compensation by employee ID [{}]", employeeId);
+
+        return compensationRepository.findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(employeeId)
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException("Compensation not found for employee: " + employeeId)))
+                .flatMap(this::hydrate);
+    }
+
+    /**
+     * Fills in the current Employee of the Compensation, leaving an Employee holding only its employeeId when it can't
+     * be found
+     */
+    private Mono<Compensation> hydrate(Compensation compensation) {
+        return employeeRepository.findByEmployeeId(compensation.getEmployeeId())
+                .defaultIfEmpty(stub(compensation.getEmployeeId()))
+                .map(compensation::withEmployee);
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        return employee;
+    }
+}
@@ -0,0 +1,148 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.OrgGraphIndex;
+import com.mindex.challenge.dao.reactive.ReactiveEmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Non-blocking version of {@link EmployeeServiceImpl}. Writes go to the same store as the blocking service, and keep
+ * the stored report counts, the {@link EmployeeCache} and the {@link OrgGraphIndex} up to date the same way it does.
+ * Those are all blocking, so that bookkeeping runs on the bounded elastic scheduler rather than on the event loop.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeServiceImpl.class);
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private MaterializedReportCounts reportCounts;
+
+    @Value("${challenge.reporting-structure.use-org-graph-index:true}")
+    private boolean useOrgGraphIndex;
+
+    @Value("${challenge.reporting-structure.concurrency:16}")
+    private int concurrency;
+
+    @Override
+    public Mono<Employee> create(Employee employee) {
+        LOG.debug("Creating employee [{}]", employee);
+
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        // No manager can list an id that was only just generated, so only the new Employee's own count is needed
+        return Mono.fromRunnable(() -> reportCounts.countNew(Collections.singletonList(employee)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(Mono.defer(() -> employeeRepository.insert(employee)));
+    }
+
+    @Override
+    public Mono<Employee> read(String id) {
+        LOG.debug("Finding employee with id [{}]", id);
+
+        return employeeRepository.findByEmployeeId(id)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Invalid employeeId: " + id)));
+    }
+
+    @Override
+    public Mono<Employee> update(Employee employee) {
+        LOG.debug("Updating employee [{}]", employee);
+
+        return employeeRepository.upsertByEmployeeId(employee)
+                .flatMap(previous -> written(employee, previous))
+                .switchIfEmpty(Mono.defer(() -> written(employee, null)));
+    }
+
+    @Override
+    public Mono<ReportingStructure> getReportingStructure(String id, Integer maxDepth) {
+        LOG.debug("Finding reporting structure for employee with id [{}] and max depth [{}]", id, maxDepth);
+
+        return readAll(Collections.singleton(id))
+                .flatMap(employees -> {
+                    Employee employee = employees.get(id);
+                    ReactiveReportingStructureTraversal traversal =
+                            new ReactiveReportingStructureTraversal(this::readAll, concurrency);
+
+                    // Same rule as the blocking service: the stored count, then the index's, then a full count
+                    return employeeRepository.findNumberOfReportsByEmployeeId(id)
+                            .switchIfEmpty(Mono.fromSupplier(() ->
+                                    useOrgGraphIndex ? orgGraphIndex.getNumberOfReports(id) : null))
+                            .flatMap(numberOfReports -> traversal.fillOut(employee, maxDepth, false)
+                                    .thenReturn(numberOfReports))
+                            .switchIfEmpty(Mono.defer(() -> traversal.fillOut(employee, maxDepth, true)))
+                            .map(numberOfReports -> new ReportingStructure(employee, numberOfReports));
+                });
+    }
+
+    /**
+     * Applies an Employee's write to the stored report counts, evicts it from the employee cache and indexes it
+     *
+     * @param employee the Employee that was written
+     * @param previous the Employee's directReports before the write, or null if the write inserted it
+     * @return the written Employee
+     */
+    private Mono<Employee> written(Employee employee, Employee previous) {
+        return Mono.fromCallable(() -> {
+            employeeCache.writeAndEvict(employee.getEmployeeId(), () -> {
+                reportCounts.applyWrite(employee.getEmployeeId(), previous, employee);
+                return null;
+            });
+            orgGraphIndex.put(employee);
+
+            return employee;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Fetches the Employees with the given ids from the org graph index, or from the repository with a single query
+     * when the index is not in use
+     *
+     * @param ids the ids of the Employees to fetch
+     * @return the fetched Employees keyed by employeeId, or a NotFoundException if any of them could not be found
+     */
+    private Mono<Map<String, Employee>> readAll(Set<String> ids) {
+        LOG.debug("Finding [{}] employees by id", ids.size());
+
+        Mono<Map<String, Employee>> fetchedEmployees;
+        if (useOrgGraphIndex) {
+            fetchedEmployees = Mono.fromCallable(() -> orgGraphIndex.findAll(ids));
+        } else {
+            fetchedEmployees = employeeRepository.findByEmployeeIdIn(ids)
+                    .collectMap(Employee::getEmployeeId);
+        }
+
+        return fetchedEmployees.flatMap(employees -> {
+            for (String id : ids) {
+                if (!employees.containsKey(id)) {
+                    return Mono.error(new NotFoundException("Invalid employeeId: " + id));
+                }
+            }
+
+            return Mono.just(employees);
+        });
+    }
+}
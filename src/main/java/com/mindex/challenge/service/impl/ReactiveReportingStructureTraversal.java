@@ -0,0 +1,134 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Employee;
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Non-blocking traversal that fills out the reporting structure under an Employee.
+ * <p>
+ * Each manager's reports are loaded together, and the subtrees under those reports are then expanded concurrently, up
+ * to a fixed number at a time, instead of waiting for every manager on a level before moving to the next one. Like
+ * {@link ReportingStructureTraversal}, every employeeId is only expanded once and any repeat is left as a reference,
+ * though which manager a shared report ends up under depends on which subtree reaches it first.
+ */
+class ReactiveReportingStructureTraversal {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveReportingStructureTraversal.class);
+
+    /**
+     * Source of the Employees visited by the traversal
+     */
+    interface EmployeeLoader {
+        /**
+         * Loads the Employees with the given ids
+         *
+         * @param ids the ids of the Employees to load
+         * @return the loaded Employees keyed by employeeId, the traversal is free to modify them, or a
+         * NotFoundException if any of the Employees could not be found
+         */
+        Mono<Map<String, Employee>> loadAll(Set<String> ids);
+    }
+
+    private final EmployeeLoader employeeLoader;
+
+    private final int concurrency;
+
+    ReactiveReportingStructureTraversal(EmployeeLoader employeeLoader, int concurrency) {
+        this.employeeLoader = employeeLoader;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Fills out the reporting structure under the given Employee, replacing each direct report with its loaded
+     * Employee, down to maxDepth levels below it. The direct reports of the Employees on the last filled out level are
+     * left as references.
+     *
+     * @param root           the Employee to fill out the reporting structure for
+     * @param maxDepth       the number of levels of reports to fill out, or null to fill out every level
+     * @param countAllLevels whether to keep walking past maxDepth so every report is counted
+     * @return the number of distinct reports under the Employee, only including the filled out levels when
+     * countAllLevels is false
+     */
+    Mono<Integer> fillOut(Employee root, Integer maxDepth, boolean countAllLevels) {
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+        visited.add(root.getEmployeeId());
+
+        return expand(root, root, 1, maxDepth, countAllLevels, visited)
+                .then(Mono.fromCallable(() -> visited.size() - 1));
+    }
+
+    private Mono<Void> expand(Employee root, Employee manager, int depth, Integer maxDepth, boolean countAllLevels,
+                              Set<String> visited) {
+        boolean fillingOut = maxDepth == null || depth <= maxDepth;
+        if (!fillingOut && !countAllLevels) {
+            return Mono.empty();
+        }
+
+        Set<String> ids = new LinkedHashSet<>();
+        for (Employee report : getDirectReports(manager)) {
+            if (visited.add(report.getEmployeeId())) {
+                ids.add(report.getEmployeeId());
+            } else {
+                LOG.warn("Employee [{}] is reported to more than once under [{}], only counting it once",
+                        report.getEmployeeId(), root.getEmployeeId());
+            }
+        }
+
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return employeeLoader.loadAll(ids)
+                .flatMap(loadedReports -> {
+                    List<Employee> reports = new ArrayList<>(ids.size());
+                    for (String id : ids) {
+                        reports.add(loadedReports.get(id));
+                    }
+
+                    if (fillingOut) {
+                        replaceDirectReports(manager, loadedReports);
+                    }
+
+                    return Flux.fromIterable(reports)
+                            .flatMap(report -> expand(root, report, depth + 1, maxDepth, countAllLevels, visited),
+                                    concurrency)
+                            .then();
+                });
+    }
+
+    /**
+     * Replaces each of the manager's direct reports with its loaded Employee, leaving the reports that were claimed by
+     * another manager as references so the tree never contains a cycle.
+     */
+    private static void replaceDirectReports(Employee manager, Map<String, Employee> loadedReports) {
+        List<Employee> filledOutReports = new ArrayList<>(manager.getDirectReports().size());
+        for (Employee report : manager.getDirectReports()) {
+            Employee loadedReport = loadedReports.remove(report.getEmployeeId());
+            if (loadedReport != null) {
+                filledOutReports.add(loadedReport);
+            } else {
+                Employee reference = new Employee();
+                reference.setEmployeeId(report.getEmployeeId());
+                filledOutReports.add(reference);
+            }
+        }
+
+        manager.setDirectReports(filledOutReports);
+    }
+
+    private static List<Employee> getDirectReports(Employee employee) {
+        return ObjectUtils.defaultIfNull(employee.getDirectReports(), emptyList());
+    }
+}
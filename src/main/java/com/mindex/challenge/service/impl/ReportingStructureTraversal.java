@@ -0,0 +1,149 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.NotFoundException;
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Iterative traversal that fills out the reporting structure under an Employee.
+ * <p>
+ * Rather than recursing once per management level, the traversal keeps an explicit work list of the managers on the
+ * current level and loads all of their reports together, so stack usage is constant and loads grow with the depth of
+ * the hierarchy. Every employeeId is only expanded once: a report that shows up again, whether through a cycle or by
+ * being listed under more than one manager, is left as a reference and is not counted again.
+ */
+class ReportingStructureTraversal {
+    private static final Logger LOG = LoggerFactory.getLogger(ReportingStructureTraversal.class);
+
+    /**
+     * Source of the Employees visited by the traversal
+     */
+    interface EmployeeLoader {
+        /**
+         * Loads the Employees with the given ids
+         *
+         * @param ids the ids of the Employees to load
+         * @return the loaded Employees keyed by employeeId, the traversal is free to modify them
+         * @throws NotFoundException if any of the Employees could not be found
+         */
+        Map<String, Employee> loadAll(Set<String> ids) throws NotFoundException;
+    }
+
+    private final EmployeeLoader employeeLoader;
+
+    private int levelsLoaded;
+
+    ReportingStructureTraversal(EmployeeLoader employeeLoader) {
+        this.employeeLoader = employeeLoader;
+    }
+
+    /**
+     * @return the number of levels of reports the last {@link #fillOut} loaded, whether or not they were filled out
+     */
+    int getLevelsLoaded() {
+        return levelsLoaded;
+    }
+
+    /**
+     * Fills out the reporting structure under the given Employee, replacing each direct report with its loaded
+     * Employee, down to maxDepth levels below it. The direct reports of the Employees on the last filled out level are
+     * left as references.
+     *
+     * @param root           the Employee to fill out the reporting structure for
+     * @param maxDepth       the number of levels of reports to fill out, or null to fill out every level
+     * @param countAllLevels whether to keep walking past maxDepth so every report is counted
+     * @return the number of distinct reports under the Employee, only including the filled out levels when
+     * countAllLevels is false
+     * @throws NotFoundException if any of the Employee's reports could not be found
+     */
+    int fillOut(Employee root, Integer maxDepth, boolean countAllLevels) throws NotFoundException {
+        Set<String> visited = new HashSet<>();
+        visited.add(root.getEmployeeId());
+        levelsLoaded = 0;
+
+        int numberOfReports = 0;
+        int depth = 0;
+        List<Employee> managers = Collections.singletonList(root);
+        while (!managers.isEmpty()) {
+            depth++;
+            boolean fillingOut = maxDepth == null || depth <= maxDepth;
+            if (!fillingOut && !countAllLevels) {
+                break;
+            }
+
+            Set<String> ids = new LinkedHashSet<>();
+            for (Employee manager : managers) {
+                for (Employee report : getDirectReports(manager)) {
+                    if (visited.add(report.getEmployeeId())) {
+                        ids.add(report.getEmployeeId());
+                    } else {
+                        LOG.warn("Employee [{}] is reported to more than once under [{}], only counting it once",
+                                report.getEmployeeId(), root.getEmployeeId());
+                    }
+                }
+            }
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            Map<String, Employee> loadedReports = employeeLoader.loadAll(ids);
+            levelsLoaded = depth;
+            List<Employee> nextManagers = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                nextManagers.add(loadedReports.get(id));
+            }
+
+            if (fillingOut) {
+                for (Employee manager : managers) {
+                    replaceDirectReports(manager, loadedReports);
+                }
+            }
+
+            numberOfReports += ids.size();
+            managers = nextManagers;
+        }
+
+        return numberOfReports;
+    }
+
+    /**
+     * Replaces each of the manager's direct reports with its loaded Employee, the first time that Employee is placed in
+     * the tree. Any later occurrence is left as a reference so the tree never contains a cycle.
+     */
+    private static void replaceDirectReports(Employee manager, Map<String, Employee> loadedReports) {
+        if (manager.getDirectReports() == null) {
+            return;
+        }
+
+        List<Employee> filledOutReports = new ArrayList<>(manager.getDirectReports().size());
+        for (Employee report : manager.getDirectReports()) {
+            Employee loadedReport = loadedReports.remove(report.getEmployeeId());
+            if (loadedReport != null) {
+                filledOutReports.add(loadedReport);
+            } else {
+                Employee reference = new Employee();
+                reference.setEmployeeId(report.getEmployeeId());
+                filledOutReports.add(reference);
+            }
+        }
+
+        manager.setDirectReports(filledOutReports);
+    }
+
+    private static List<Employee> getDirectReports(Employee employee) {
+        return ObjectUtils.defaultIfNull(employee.getDirectReports(), emptyList());
+    }
+}
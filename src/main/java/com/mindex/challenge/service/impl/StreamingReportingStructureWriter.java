@@ -0,0 +1,253 @@
+package com.mindex.challenge.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.NotFoundException;
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Writes a ReportingStructure as JSON while walking the reporting structure depth first, so no part of the tree is held
+ * once it has been written.
+ * <p>
+ * Only the loaded direct reports of the managers on the path from the root to the Employee being written are held,
+ * which bounds memory by the depth and fan-out of the hierarchy rather than its size. numberOfReports is written last,
+ * after the employee, once every report has been counted. A report that shows up again, or that could not be found, is
+ * written as a reference holding only its employeeId, like the reporting structure built in memory.
+ */
+class StreamingReportingStructureWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingReportingStructureWriter.class);
+
+    private final ReportingStructureTraversal.EmployeeLoader employeeLoader;
+
+    private final JsonGenerator generator;
+
+    private final Set<String> fields;
+
+    private int levelsLoaded;
+
+    /**
+     * @param employeeLoader source of the reports, ids it can't find are written as references
+     * @param generator      the generator to write the ReportingStructure to
+     * @param fields         the names of the fields to write for each Employee, or null to write every field.
+     *                       employeeId and directReports are always written since they make up the structure.
+     */
+    StreamingReportingStructureWriter(ReportingStructureTraversal.EmployeeLoader employeeLoader,
+                                      JsonGenerator generator, Set<String> fields) {
+        this.employeeLoader = employeeLoader;
+        this.generator = generator;
+        this.fields = fields;
+    }
+
+    /**
+     * @return the deepest level of reports the last {@link #write} loaded
+     */
+    int getLevelsLoaded() {
+        return levelsLoaded;
+    }
+
+    /**
+     * Writes the ReportingStructure for the given Employee, filling out its reports down to maxDepth levels below it
+     *
+     * @param root                 the Employee to write the ReportingStructure for
+     * @param maxDepth             the number of levels of reports to fill out, or null to fill out every level
+     * @param knownNumberOfReports the number of reports under the Employee if it is already known, nothing below
+     *                             maxDepth is walked then
+     * @param forest               whether the hierarchy is known to be a forest, reports then can't show up twice so
+     *                             they aren't tracked
+     * @return the numberOfReports written
+     * @throws NotFoundException if the reports could not be loaded
+     * @throws IOException       if the ReportingStructure could not be written
+     */
+    int write(Employee root, Integer maxDepth, Integer knownNumberOfReports, boolean forest)
+            throws NotFoundException, IOException {
+        Set<String> visited = null;
+        if (!forest) {
+            visited = new HashSet<>();
+            visited.add(root.getEmployeeId());
+        }
+        levelsLoaded = 0;
+
+        generator.writeStartObject();
+        generator.writeFieldName("employee");
+
+        int numberOfReports = 0;
+        Deque<Level> path = new ArrayDeque<>();
+        Level rootLevel = open(root, 0, true, maxDepth, knownNumberOfReports == null, visited);
+        if (rootLevel != null) {
+            path.push(rootLevel);
+        }
+        while (!path.isEmpty()) {
+            Level level = path.peek();
+            if (!level.reports.hasNext()) {
+                close(path.pop());
+                continue;
+            }
+
+            Report report = level.reports.next();
+            if (report.employee == null) {
+                writeReference(report.employeeId);
+                continue;
+            }
+
+            numberOfReports++;
+            Level reportLevel = open(report.employee, level.depth + 1, level.writing, maxDepth,
+                    knownNumberOfReports == null, visited);
+            if (reportLevel != null) {
+                path.push(reportLevel);
+            }
+        }
+
+        int writtenNumberOfReports = knownNumberOfReports == null ? numberOfReports : knownNumberOfReports;
+        generator.writeNumberField("numberOfReports", writtenNumberOfReports);
+        generator.writeEndObject();
+
+        return writtenNumberOfReports;
+    }
+
+    /**
+     * Writes the start of an Employee, or the whole of it when it is on the last filled out level, and loads its
+     * reports
+     *
+     * @return the level to walk the Employee's reports on, or null if there is nothing under it to write or count
+     */
+    private Level open(Employee employee, int depth, boolean writing, Integer maxDepth, boolean countAllLevels,
+                       Set<String> visited) throws NotFoundException, IOException {
+        boolean fillingOut = writing && (maxDepth == null || depth < maxDepth);
+        if (writing) {
+            writeFields(employee);
+            if (!fillingOut) {
+                writeReferences(employee);
+                generator.writeEndObject();
+            }
+        }
+        if (!fillingOut && !countAllLevels) {
+            return null;
+        }
+
+        List<Employee> directReports = ObjectUtils.defaultIfNull(employee.getDirectReports(), emptyList());
+        Set<String> ids = new LinkedHashSet<>();
+        for (Employee report : directReports) {
+            if (visited == null || visited.add(report.getEmployeeId())) {
+                ids.add(report.getEmployeeId());
+            } else {
+                LOG.warn("Employee [{}] is reported to more than once, only counting it once",
+                        report.getEmployeeId());
+            }
+        }
+
+        Map<String, Employee> loadedReports = emptyMap();
+        if (!ids.isEmpty()) {
+            loadedReports = employeeLoader.loadAll(ids);
+            levelsLoaded = Math.max(levelsLoaded, depth + 1);
+        }
+
+        // Only the first listing of a loaded report fills it out, any other is left as a reference
+        List<Report> reports = new ArrayList<>(directReports.size());
+        for (Employee report : directReports) {
+            Employee loadedReport = loadedReports.remove(report.getEmployeeId());
+            if (loadedReport != null || fillingOut) {
+                reports.add(new Report(report.getEmployeeId(), loadedReport));
+            }
+        }
+
+        boolean writesArray = fillingOut && employee.getDirectReports() != null;
+        if (writesArray) {
+            generator.writeArrayFieldStart("directReports");
+        }
+        return new Level(reports.iterator(), depth, fillingOut, writesArray);
+    }
+
+    /**
+     * Finishes writing an Employee once every report under it has been walked
+     */
+    private void close(Level level) throws IOException {
+        if (level.writing) {
+            if (level.writesArray) {
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeFields(Employee employee) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("employeeId", employee.getEmployeeId());
+        writeField("firstName", employee.getFirstName());
+        writeField("lastName", employee.getLastName());
+        writeField("position", employee.getPosition());
+        writeField("department", employee.getDepartment());
+    }
+
+    private void writeField(String name, String value) throws IOException {
+        if (value != null && (fields == null || fields.contains(name))) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    /**
+     * Writes an Employee's directReports as references, for an Employee on the last filled out level
+     */
+    private void writeReferences(Employee employee) throws IOException {
+        if (employee.getDirectReports() == null) {
+            return;
+        }
+
+        generator.writeArrayFieldStart("directReports");
+        for (Employee report : employee.getDirectReports()) {
+            writeReference(report.getEmployeeId());
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeReference(String employeeId) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("employeeId", employeeId);
+        generator.writeEndObject();
+    }
+
+    /**
+     * A direct report as it is listed, along with its loaded Employee if it is to be filled out
+     */
+    private static final class Report {
+        private final String employeeId;
+        private final Employee employee;
+
+        Report(String employeeId, Employee employee) {
+            this.employeeId = employeeId;
+            this.employee = employee;
+        }
+    }
+
+    /**
+     * The reports of one Employee on the path from the root, walked in the order they are listed
+     */
+    private static final class Level {
+        private final Iterator<Report> reports;
+        private final int depth;
+        private final boolean writing;
+        private final boolean writesArray;
+
+        Level(Iterator<Report> reports, int depth, boolean writing, boolean writesArray) {
+            this.reports = reports;
+            this.depth = depth;
+            this.writing = writing;
+            this.writesArray = writesArray;
+        }
+    }
+}
@@ -18,7 +18,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "challenge.bootstrap.batch-size=2")
 public class DataBootstrapTest {
 
     private static final String LENNON_ID = "16a596ae-edd3-4847-99fe-c4518e82c86f";
@@ -29,6 +29,9 @@ public class DataBootstrapTest {
     @Autowired
     private CompensationRepository compensationRepository;
 
+    @Autowired
+    private DataBootstrap dataBootstrap;
+
     @Test
     public void testEmployees() {
         Employee employee = employeeRepository.findByEmployeeId(LENNON_ID);
@@ -39,13 +42,26 @@ public class DataBootstrapTest {
         assertEquals("Engineering", employee.getDepartment());
     }
 
+    @Test
+    public void testAllLoaded() {
+        assertEquals(5, employeeRepository.count());
+        assertEquals(7, compensationRepository.count());
+    }
+
+    @Test
+    public void testRestartSkipsExistingData() {
+        dataBootstrap.init();
+
+        assertEquals(5, employeeRepository.count());
+        assertEquals(7, compensationRepository.count());
+    }
+
     @Test
     public void testCompensation() {
-        Compensation compensation = compensationRepository.findFirstByEmployee_EmployeeIdOrderByEffectiveDateDesc(
+        Compensation compensation = compensationRepository.findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(
                 LENNON_ID);
         assertNotNull(compensation);
-        assertEquals(LENNON_ID, compensation.getEmployee()
-                .getEmployeeId());
+        assertEquals(LENNON_ID, compensation.getEmployeeId());
         assertEquals(new BigDecimal("200000"), compensation.getSalary());
         assertEquals(LocalDate.parse("2022-03-01"), compensation.getEffectiveDate());
     }
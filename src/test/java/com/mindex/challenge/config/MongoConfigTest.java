@@ -0,0 +1,114 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.bson.Document;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class MongoConfigTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    public void testNoReactiveClientOutsideReactiveProfile() {
+        assertEquals(0, applicationContext.getBeanNamesForType(
+                com.mongodb.reactivestreams.client.MongoClient.class).length);
+        assertEquals(0, applicationContext.getBeanNamesForType(ReactiveMongoTemplate.class).length);
+    }
+
+    @Test
+    public void testEmployeeIndexes() {
+        IndexInfo index = findIndex(mongoTemplate.indexOps(Employee.class).getIndexInfo(), "employeeId");
+
+        assertTrue(index.isUnique());
+        assertEquals(Arrays.asList(IndexField.create("employeeId", Sort.Direction.ASC)), index.getIndexFields());
+
+        IndexInfo versionIndex = findIndex(mongoTemplate.indexOps(Employee.class).getIndexInfo(),
+                "employeeId_version");
+
+        assertEquals(Arrays.asList(IndexField.create("employeeId", Sort.Direction.ASC),
+                IndexField.create("version", Sort.Direction.ASC)), versionIndex.getIndexFields());
+
+        IndexInfo numberOfReportsIndex = findIndex(mongoTemplate.indexOps(Employee.class).getIndexInfo(),
+                "employeeId_numberOfReports");
+
+        assertEquals(Arrays.asList(IndexField.create("employeeId", Sort.Direction.ASC),
+                IndexField.create("numberOfReports", Sort.Direction.ASC)), numberOfReportsIndex.getIndexFields());
+
+        IndexInfo managerIndex = findIndex(mongoTemplate.indexOps(Employee.class).getIndexInfo(),
+                "directReports_employeeId");
+
+        assertEquals(Arrays.asList(IndexField.create("directReports.employeeId", Sort.Direction.ASC)),
+                managerIndex.getIndexFields());
+    }
+
+    @Test
+    public void testCompensationIndexes() {
+        IndexInfo index = findIndex(mongoTemplate.indexOps(Compensation.class).getIndexInfo(),
+                "employeeId_effectiveDate_id");
+
+        assertEquals(Arrays.asList(IndexField.create("employeeId", Sort.Direction.ASC),
+                IndexField.create("effectiveDate", Sort.Direction.DESC),
+                IndexField.create("_id", Sort.Direction.DESC)), index.getIndexFields());
+    }
+
+    @Test
+    public void testMigrateCompensations() {
+        String collectionName = mongoTemplate.getCollectionName(Compensation.class);
+        String employeeId = UUID.randomUUID().toString();
+        Document legacyCompensation = new Document("employee", new Document("employeeId", employeeId)
+                .append("firstName", "Legacy"))
+                .append("salary", "50000")
+                .append("effectiveDate", LocalDate.parse("2020-01-01"));
+        mongoTemplate.insert(legacyCompensation, collectionName);
+
+        assertEquals(1, MongoConfig.migrateCompensations(mongoTemplate));
+        assertEquals(0, MongoConfig.migrateCompensations(mongoTemplate));
+
+        Document migrated = mongoTemplate.findById(legacyCompensation.get("_id"), Document.class, collectionName);
+        assertNotNull(migrated);
+        assertEquals(employeeId, migrated.get("employeeId"));
+        assertFalse(migrated.containsKey("employee"));
+        assertEquals(new BigDecimal("50000"), mongoTemplate.findById(legacyCompensation.get("_id"),
+                Compensation.class).getSalary());
+    }
+
+    private static IndexInfo findIndex(List<IndexInfo> indexes, String name) {
+        for (IndexInfo index : indexes) {
+            if (name.equals(index.getName())) {
+                return index;
+            }
+        }
+
+        fail("No index named " + name + " in " + indexes);
+        return null;
+    }
+}
@@ -0,0 +1,282 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.PayrollRollup;
+import com.mindex.challenge.data.ReportsPage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrgGraphIndexTest {
+
+    private OrgGraphIndex orgGraphIndex;
+
+    @Before
+    public void setup() {
+        orgGraphIndex = new OrgGraphIndex();
+        orgGraphIndex.rebuild(Arrays.asList(
+                employee("ceo", "vp1", "vp2"),
+                employee("vp1", "dev1", "dev2"),
+                employee("vp2", "dev3"),
+                employee("dev1"),
+                employee("dev2"),
+                employee("dev3")
+        ));
+    }
+
+    @Test
+    public void testRebuild() {
+        assertEquals(Integer.valueOf(5), orgGraphIndex.getNumberOfReports("ceo"));
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("vp1"));
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("vp2"));
+        assertEquals(Integer.valueOf(0), orgGraphIndex.getNumberOfReports("dev1"));
+        assertNull(orgGraphIndex.getNumberOfReports("unknown"));
+    }
+
+    @Test
+    public void testPutAppliesChangesToManagers() {
+        orgGraphIndex.put(employee("dev4", "intern1", "intern2"));
+        orgGraphIndex.put(employee("vp2", "dev3", "dev4"));
+
+        assertEquals(Integer.valueOf(4), orgGraphIndex.getNumberOfReports("vp2"));
+        assertEquals(Integer.valueOf(8), orgGraphIndex.getNumberOfReports("ceo"));
+
+        // Reports that are indexed after their manager are counted once they have reports of their own
+        orgGraphIndex.put(employee("intern1", "intern3"));
+        assertEquals(Integer.valueOf(9), orgGraphIndex.getNumberOfReports("ceo"));
+
+        orgGraphIndex.put(employee("vp1"));
+        assertEquals(Integer.valueOf(0), orgGraphIndex.getNumberOfReports("vp1"));
+        assertEquals(Integer.valueOf(7), orgGraphIndex.getNumberOfReports("ceo"));
+    }
+
+    @Test
+    public void testPutMovingReportBetweenManagers() {
+        orgGraphIndex.put(employee("vp1", "dev1"));
+        orgGraphIndex.put(employee("vp2", "dev3", "dev2"));
+
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("vp1"));
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("vp2"));
+        assertEquals(Integer.valueOf(5), orgGraphIndex.getNumberOfReports("ceo"));
+    }
+
+    @Test
+    public void testPutIgnoresOlderVersions() {
+        Employee newer = employee("vp2", "dev3", "dev2");
+        newer.setVersion(3L);
+        Employee older = employee("vp2", "dev3");
+        older.setVersion(2L);
+
+        // Written as older then newer, but indexed the other way around
+        orgGraphIndex.put(employee("vp1", "dev1"));
+        orgGraphIndex.put(newer);
+        orgGraphIndex.put(older);
+
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("vp2"));
+        assertEquals(Integer.valueOf(5), orgGraphIndex.getNumberOfReports("ceo"));
+        assertEquals(Long.valueOf(3L), orgGraphIndex.findAll(Collections.singleton("vp2")).get("vp2").getVersion());
+    }
+
+    @Test
+    public void testFindManagerIds() {
+        assertEquals(Arrays.asList("vp1", "ceo"), orgGraphIndex.findManagerIds("dev2"));
+        assertEquals(Collections.emptyList(), orgGraphIndex.findManagerIds("ceo"));
+        assertEquals(Collections.emptyList(), orgGraphIndex.findManagerIds("unknown"));
+
+        orgGraphIndex.put(employee("vp2", "dev3", "dev1"));
+
+        assertNull(orgGraphIndex.findManagerIds("dev1"));
+    }
+
+    @Test
+    public void testPutWithCycle() {
+        orgGraphIndex.put(employee("dev3", "ceo"));
+
+        assertNull(orgGraphIndex.getNumberOfReports("ceo"));
+
+        orgGraphIndex.put(employee("dev3"));
+
+        assertEquals(Integer.valueOf(5), orgGraphIndex.getNumberOfReports("ceo"));
+        assertEquals(Integer.valueOf(0), orgGraphIndex.getNumberOfReports("dev3"));
+
+        orgGraphIndex.put(employee("dev3", "dev4"));
+
+        assertEquals(Integer.valueOf(6), orgGraphIndex.getNumberOfReports("ceo"));
+    }
+
+    @Test
+    public void testPutWithMultipleManagers() {
+        orgGraphIndex.put(employee("vp2", "dev3", "dev1"));
+
+        assertNull(orgGraphIndex.getNumberOfReports("ceo"));
+
+        orgGraphIndex.put(employee("vp1", "dev2"));
+
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("vp2"));
+        assertEquals(Integer.valueOf(5), orgGraphIndex.getNumberOfReports("ceo"));
+    }
+
+    @Test
+    public void testFindAll() {
+        Map<String, Employee> found = orgGraphIndex.findAll(Arrays.asList("vp1", "dev1", "unknown"));
+
+        assertEquals(2, found.size());
+        assertEquals("First vp1", found.get("vp1").getFirstName());
+        assertEquals(2, found.get("vp1").getDirectReports().size());
+        assertEquals("dev1", found.get("vp1").getDirectReports().get(0).getEmployeeId());
+        assertNull(found.get("vp1").getDirectReports().get(0).getFirstName());
+        assertTrue(found.get("dev1").getDirectReports().isEmpty());
+    }
+
+    @Test
+    public void testPayrollRollup() {
+        orgGraphIndex.put(compensation("ceo", "300", "2022-01-01"));
+        orgGraphIndex.put(compensation("vp1", "200", "2022-01-01"));
+        orgGraphIndex.put(compensation("dev1", "100", "2022-01-01"));
+        orgGraphIndex.put(compensation("dev2", "110", "2022-01-01"));
+
+        assertEquals(new PayrollRollup("ceo", 6, 4, new BigDecimal("710"), new BigDecimal("177.50")),
+                orgGraphIndex.getPayrollRollup("ceo"));
+        assertEquals(new PayrollRollup("vp2", 2, 0, BigDecimal.ZERO, null), orgGraphIndex.getPayrollRollup("vp2"));
+        assertNull(orgGraphIndex.getPayrollRollup("unknown"));
+
+        // Only the most recent Compensation counts
+        orgGraphIndex.put(compensation("dev1", "90", "2021-01-01"));
+        orgGraphIndex.put(compensation("dev1", "120", "2023-01-01"));
+        assertEquals(new BigDecimal("430"), orgGraphIndex.getPayrollRollup("vp1").getTotalSalary());
+        assertEquals(new BigDecimal("730"), orgGraphIndex.getPayrollRollup("ceo").getTotalSalary());
+    }
+
+    @Test
+    public void testPayrollRollupBreaksTiesOnCompensationId() {
+        Compensation higherId = compensation("dev1", "200", "2022-01-01");
+        higherId.setId("b");
+        Compensation lowerId = compensation("dev1", "100", "2022-01-01");
+        lowerId.setId("a");
+
+        orgGraphIndex.put(higherId);
+        orgGraphIndex.put(lowerId);
+        assertEquals(new BigDecimal("200"), orgGraphIndex.getPayrollRollup("dev1").getTotalSalary());
+
+        Compensation highestId = compensation("dev1", "300", "2022-01-01");
+        highestId.setId("c");
+        orgGraphIndex.put(highestId);
+        assertEquals(new BigDecimal("300"), orgGraphIndex.getPayrollRollup("vp1").getTotalSalary());
+    }
+
+    @Test
+    public void testPayrollRollupFollowsHierarchyChanges() {
+        orgGraphIndex.rebuild(Arrays.asList(
+                employee("ceo", "vp1", "vp2"),
+                employee("vp1", "dev1", "dev2"),
+                employee("vp2", "dev3"),
+                employee("dev1"),
+                employee("dev2"),
+                employee("dev3")
+        ), Arrays.asList(compensation("dev1", "100", "2022-01-01"), compensation("dev2", "110", "2022-01-01"),
+                compensation("dev3", "120", "2022-01-01")));
+
+        orgGraphIndex.put(employee("vp1", "dev1"));
+        orgGraphIndex.put(employee("vp2", "dev3", "dev2"));
+
+        assertEquals(new BigDecimal("100"), orgGraphIndex.getPayrollRollup("vp1").getTotalSalary());
+        assertEquals(new BigDecimal("230"), orgGraphIndex.getPayrollRollup("vp2").getTotalSalary());
+        assertEquals(3, orgGraphIndex.getPayrollRollup("ceo").getCompensatedHeadcount());
+
+        // Aggregates are recomputed once the hierarchy is a forest again
+        orgGraphIndex.put(employee("dev3", "ceo"));
+        assertNull(orgGraphIndex.getPayrollRollup("ceo"));
+        orgGraphIndex.put(employee("dev3"));
+        orgGraphIndex.put(compensation("dev4", "130", "2022-01-01"));
+        orgGraphIndex.put(employee("dev3", "dev4"));
+
+        assertEquals(new BigDecimal("460"), orgGraphIndex.getPayrollRollup("ceo").getTotalSalary());
+        assertEquals(new BigDecimal("115.00"), orgGraphIndex.getPayrollRollup("ceo").getMeanSalary());
+    }
+
+    @Test
+    public void testIsReportOf() {
+        assertTrue(orgGraphIndex.isReportOf("dev1", "ceo"));
+        assertTrue(orgGraphIndex.isReportOf("dev1", "vp1"));
+        assertFalse(orgGraphIndex.isReportOf("dev1", "vp2"));
+        assertFalse(orgGraphIndex.isReportOf("vp1", "dev1"));
+        assertFalse(orgGraphIndex.isReportOf("ceo", "ceo"));
+        assertNull(orgGraphIndex.isReportOf("dev1", "unknown"));
+
+        // Labels follow changes to the hierarchy
+        orgGraphIndex.put(employee("vp2", "dev3", "dev1"));
+        assertNull(orgGraphIndex.isReportOf("dev1", "vp2"));
+        orgGraphIndex.put(employee("vp1", "dev2"));
+        assertTrue(orgGraphIndex.isReportOf("dev1", "vp2"));
+        assertFalse(orgGraphIndex.isReportOf("dev1", "vp1"));
+    }
+
+    @Test
+    public void testFindReports() {
+        ReportsPage firstPage = orgGraphIndex.findReports("ceo", null, 3);
+        assertEquals(Arrays.asList("vp1", "dev1", "dev2"), employeeIds(firstPage.getReports()));
+        assertEquals("dev2", firstPage.getNextCursor());
+
+        ReportsPage lastPage = orgGraphIndex.findReports("ceo", firstPage.getNextCursor(), 3);
+        assertEquals(Arrays.asList("vp2", "dev3"), employeeIds(lastPage.getReports()));
+        assertNull(lastPage.getNextCursor());
+
+        assertTrue(orgGraphIndex.findReports("dev1", null, 3).getReports().isEmpty());
+        assertNull(orgGraphIndex.findReports("unknown", null, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindReportsCursorOutsideSubtree() {
+        orgGraphIndex.findReports("vp1", "dev3", 3);
+    }
+
+    private static List<String> employeeIds(List<Employee> employees) {
+        List<String> employeeIds = new ArrayList<>();
+        for (Employee employee : employees) {
+            employeeIds.add(employee.getEmployeeId());
+        }
+
+        return employeeIds;
+    }
+
+    private Compensation compensation(String employeeId, String salary, String effectiveDate) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employee);
+        compensation.setSalary(new BigDecimal(salary));
+        compensation.setEffectiveDate(LocalDate.parse(effectiveDate));
+
+        return compensation;
+    }
+
+    private Employee employee(String employeeId, String... directReportIds) {
+        List<Employee> directReports = new ArrayList<>();
+        for (String directReportId : directReportIds) {
+            Employee directReport = new Employee();
+            directReport.setEmployeeId(directReportId);
+            directReports.add(directReport);
+        }
+
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        employee.setFirstName("First " + employeeId);
+        employee.setDirectReports(directReportIds.length == 0 ? Collections.emptyList() : directReports);
+
+        return employee;
+    }
+}
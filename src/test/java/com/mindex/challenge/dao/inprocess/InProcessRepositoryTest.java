@@ -0,0 +1,339 @@
+package com.mindex.challenge.dao.inprocess;
+
+import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
+import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.service.EmployeeService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("in-process")
+public class InProcessRepositoryTest {
+
+    private static final String LENNON_ID = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private CompensationRepository compensationRepository;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Test
+    public void testRepositoriesAreInProcess() {
+        assertTrue(employeeRepository instanceof InProcessEmployeeRepository);
+        assertTrue(compensationRepository instanceof InProcessCompensationRepository);
+        assertEquals("Lennon", employeeRepository.findByEmployeeId(LENNON_ID).getLastName());
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void testInsertRejectsDuplicateEmployeeId() {
+        employeeRepository.insert(employee(LENNON_ID));
+    }
+
+    @Test
+    public void testReadsReturnCopies() {
+        String employeeId = UUID.randomUUID().toString();
+        Employee employee = employee(employeeId);
+        employeeRepository.insert(employee);
+        employee.setLastName("Changed");
+        employeeRepository.findByEmployeeId(employeeId).setLastName("Changed");
+
+        assertEquals("Employee", employeeRepository.findByEmployeeId(employeeId).getLastName());
+    }
+
+    @Test
+    public void testInsertUpdatesOrgGraphIndex() throws NotFoundException {
+        String managerId = UUID.randomUUID().toString();
+        Employee report = employee(UUID.randomUUID().toString());
+        Employee reference = new Employee();
+        reference.setEmployeeId(report.getEmployeeId());
+        Employee manager = employee(managerId);
+        manager.setDirectReports(Collections.singletonList(reference));
+
+        employeeRepository.insert(Arrays.asList(report, manager));
+
+        assertEquals(1, employeeService.getReportingStructure(managerId).getNumberOfReports());
+    }
+
+    @Test
+    public void testPatch() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        employeeRepository.insert(employee);
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setPosition("Patched");
+        patch.setAddDirectReports(Arrays.asList("report1", "report2", "report1"));
+        EmployeePatch change = employeeRepository.patchByEmployeeId(employee.getEmployeeId(), patch);
+        assertEquals(Arrays.asList("report1", "report2"), change.getAddDirectReports());
+        assertEquals(emptyList(), change.getRemoveDirectReports());
+
+        patch = new EmployeePatch();
+        patch.setRemoveDirectReports(Arrays.asList("report1", "report3"));
+        change = employeeRepository.patchByEmployeeId(employee.getEmployeeId(), patch);
+        assertEquals(emptyList(), change.getAddDirectReports());
+        assertEquals(Collections.singletonList("report1"), change.getRemoveDirectReports());
+
+        Employee patched = employeeRepository.findByEmployeeId(employee.getEmployeeId());
+        assertEquals("Patched", patched.getPosition());
+        assertEquals("Employee", patched.getLastName());
+        assertEquals(1, patched.getDirectReports().size());
+        assertEquals("report2", patched.getDirectReports().get(0).getEmployeeId());
+        assertEquals(Collections.singletonList(employee.getEmployeeId()),
+                employeeRepository.findManagerIdsByDirectReportIdIn(Arrays.asList("report1", "report2")));
+        assertNull(employeeRepository.patchByEmployeeId(UUID.randomUUID().toString(), patch));
+    }
+
+    @Test
+    public void testFindFields() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        employeeRepository.insert(employee);
+
+        Employee projected = employeeRepository.findFieldsByEmployeeId(employee.getEmployeeId(),
+                Collections.singleton("lastName"));
+        assertEquals(employee.getEmployeeId(), projected.getEmployeeId());
+        assertEquals("Employee", projected.getLastName());
+        assertEquals(Long.valueOf(0), projected.getVersion());
+        assertNull(projected.getFirstName());
+
+        assertEquals(1, employeeRepository.findFieldsByEmployeeIdIn(Arrays.asList(employee.getEmployeeId(),
+                UUID.randomUUID().toString()), Collections.singleton("lastName")).size());
+
+        try (CloseableIterator<Employee> streamed = employeeRepository.streamFields(
+                Collections.singleton("lastName"))) {
+            boolean found = false;
+            while (streamed.hasNext()) {
+                Employee next = streamed.next();
+                assertNull(next.getFirstName());
+                found |= employee.getEmployeeId().equals(next.getEmployeeId());
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test
+    public void testVersions() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        employeeRepository.insert(employee);
+        assertEquals(Long.valueOf(0), employee.getVersion());
+
+        assertEquals(Long.valueOf(0), employeeRepository.upsertByEmployeeId(employee).getVersion());
+        assertEquals(Long.valueOf(1), employee.getVersion());
+        assertNull(employeeRepository.upsertByEmployeeId(employee(UUID.randomUUID().toString())));
+
+        employee.setPosition("Replaced");
+        employee.setDirectReports(Collections.singletonList(employee("report")));
+        assertNull(employeeRepository.replaceByEmployeeId(employee, 0));
+        Employee previous = employeeRepository.replaceByEmployeeId(employee, 1);
+        assertEquals(Long.valueOf(1), previous.getVersion());
+        assertNull(previous.getDirectReports());
+        assertEquals(Long.valueOf(2), employee.getVersion());
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setPosition("Patched");
+        patch.setRemoveDirectReports(Collections.singletonList("report"));
+        assertNull(employeeRepository.patchByEmployeeId(employee.getEmployeeId(), patch, 1));
+        assertEquals(Collections.singletonList("report"),
+                employeeRepository.patchByEmployeeId(employee.getEmployeeId(), patch, 2).getRemoveDirectReports());
+
+        assertEquals(Long.valueOf(3), employeeRepository.findVersionByEmployeeId(employee.getEmployeeId()));
+        assertEquals("Patched", employeeRepository.findByEmployeeId(employee.getEmployeeId()).getPosition());
+        assertNull(employeeRepository.findVersionByEmployeeId(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    public void testNumberOfReports() throws NotFoundException {
+        Employee report = employeeService.create(employee(null));
+        Employee manager = employee(null);
+        manager.setDirectReports(Collections.singletonList(employee(report.getEmployeeId())));
+        employeeService.create(manager);
+        Employee uncounted = employee(UUID.randomUUID().toString());
+        employeeRepository.insert(uncounted);
+
+        assertEquals(1, employeeService.getNumberOfReports(manager.getEmployeeId()));
+
+        // Replacing the manager's fields keeps the stored count, and only stored counts are incremented
+        employeeRepository.upsertByEmployeeId(manager);
+        assertEquals(2, employeeRepository.incrementNumberOfReports(Arrays.asList(manager.getEmployeeId(),
+                report.getEmployeeId(), uncounted.getEmployeeId()), 2));
+        Map<String, Integer> numberOfReports = employeeRepository.findNumberOfReportsByEmployeeIdIn(Arrays.asList(
+                manager.getEmployeeId(), uncounted.getEmployeeId()));
+        assertEquals(Integer.valueOf(3), numberOfReports.get(manager.getEmployeeId()));
+        assertTrue(numberOfReports.containsKey(uncounted.getEmployeeId()));
+        assertNull(numberOfReports.get(uncounted.getEmployeeId()));
+        assertEquals(Long.valueOf(1), employeeRepository.findVersionByEmployeeId(manager.getEmployeeId()));
+
+        assertEquals(Collections.singletonList(manager.getEmployeeId()),
+                employeeRepository.findManagerIdsByDirectReportIdIn(Collections.singleton(report.getEmployeeId())));
+        assertEquals(0, employeeRepository.replaceNumberOfReports(
+                Collections.singletonMap(manager.getEmployeeId(), 1), Collections.emptyMap()));
+        assertEquals(1, employeeRepository.replaceNumberOfReports(
+                Collections.singletonMap(manager.getEmployeeId(), 1),
+                Collections.singletonMap(manager.getEmployeeId(), 3)));
+        assertEquals(1, employeeService.getNumberOfReports(manager.getEmployeeId()));
+    }
+
+    @Test
+    public void testFindLatestCompensation() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        compensationRepository.insert(compensation(employee, "2021-01-01", "100"));
+        compensationRepository.insert(compensation(employee, "2023-01-01", "300"));
+        compensationRepository.insert(compensation(employee, "2022-01-01", "200"));
+
+        Compensation latest = compensationRepository.findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(
+                employee.getEmployeeId());
+
+        assertEquals(new BigDecimal("300"), latest.getSalary());
+        assertNull(compensationRepository.findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(
+                UUID.randomUUID().toString()));
+    }
+
+    @Test
+    public void testFindLatestCompensations() {
+        Employee first = employee(UUID.randomUUID().toString());
+        Employee second = employee(UUID.randomUUID().toString());
+        compensationRepository.insert(compensation(first, "2021-01-01", "100"));
+        compensationRepository.insert(compensation(first, "2022-01-01", "200"));
+        compensationRepository.insert(compensation(second, "2022-01-01", "300"));
+
+        List<Compensation> latest = compensationRepository.findLatestByEmployeeIdIn(Arrays.asList(
+                second.getEmployeeId(), UUID.randomUUID().toString(), first.getEmployeeId()));
+
+        assertEquals(2, latest.size());
+        assertEquals(new BigDecimal("300"), latest.get(0).getSalary());
+        assertEquals(new BigDecimal("200"), latest.get(1).getSalary());
+    }
+
+    @Test
+    public void testFindCompensationAsOfAndHistoryPage() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        compensationRepository.insert(compensation(employee, "2023-01-01", "300"));
+        compensationRepository.insert(compensation(employee, "2021-01-01", "100"));
+        Compensation second = compensationRepository.insert(compensation(employee, "2022-01-01", "200"));
+        compensationRepository.insert(compensation(employee, "2022-01-01", "250"));
+
+        assertEquals(new BigDecimal("250"), compensationRepository
+                .findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDescIdDesc(
+                        employee.getEmployeeId(), LocalDate.parse("2022-12-31"))
+                .getSalary());
+        assertNull(compensationRepository
+                .findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDescIdDesc(
+                        employee.getEmployeeId(), LocalDate.parse("2020-12-31")));
+
+        List<Compensation> page = compensationRepository.findHistoryPage(employee.getEmployeeId(),
+                second.getEffectiveDate(), second.getId(), 10);
+        assertEquals(2, page.size());
+        assertEquals(new BigDecimal("250"), page.get(0).getSalary());
+        assertEquals(new BigDecimal("300"), page.get(1).getSalary());
+    }
+
+    @Test
+    public void testCompensationHistoryPageAfterUndatedCompensation() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        compensationRepository.insert(compensation(employee, "2021-01-01", "200"));
+        Compensation undated = compensation(employee, "2021-01-01", "100");
+        undated.setEffectiveDate(null);
+        compensationRepository.insert(undated);
+
+        List<Compensation> page = compensationRepository.findHistoryPage(employee.getEmployeeId(), null,
+                undated.getId(), 10);
+        assertEquals(1, page.size());
+        assertEquals(new BigDecimal("200"), page.get(0).getSalary());
+    }
+
+    @Test
+    public void testCompensationFindAndDeleteById() {
+        Employee employee = employee(UUID.randomUUID().toString());
+        Compensation kept = compensationRepository.insert(compensation(employee, "2021-01-01", "100"));
+        // Equal to the kept Compensation in everything but its id
+        Compensation deleted = compensationRepository.insert(compensation(employee, "2021-01-01", "100"));
+
+        assertEquals(deleted.getId(), compensationRepository.findById(deleted.getId()).get().getId());
+
+        compensationRepository.deleteById(deleted.getId());
+
+        assertFalse(compensationRepository.findById(deleted.getId()).isPresent());
+        assertEquals(Collections.singletonList(kept.getId()), compensationRepository
+                .findHistoryPage(employee.getEmployeeId(), null, null, 10)
+                .stream()
+                .map(Compensation::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testQueryByExample() {
+        String department = UUID.randomUUID().toString();
+        Employee first = employee(UUID.randomUUID().toString());
+        first.setDepartment(department);
+        Employee second = employee(UUID.randomUUID().toString());
+        second.setDepartment(department);
+        second.setLastName("Other");
+        employeeRepository.insert(Arrays.asList(first, second));
+
+        Employee probe = new Employee();
+        probe.setDepartment(department);
+        assertEquals(2, employeeRepository.count(Example.of(probe)));
+        assertEquals(Arrays.asList(first.getEmployeeId(), second.getEmployeeId()), employeeRepository
+                .findAll(Example.of(probe), Sort.by("lastName"))
+                .stream()
+                .map(Employee::getEmployeeId)
+                .collect(Collectors.toList()));
+
+        probe.setLastName("EMP");
+        Example<Employee> example = Example.of(probe, ExampleMatcher.matching()
+                .withMatcher("lastName", match -> match.startsWith().ignoreCase()));
+        assertEquals(first.getEmployeeId(), employeeRepository.findOne(example).get().getEmployeeId());
+
+        probe.setDepartment(UUID.randomUUID().toString());
+        assertFalse(employeeRepository.exists(example));
+    }
+
+    private static Employee employee(String employeeId) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        employee.setFirstName("In Process");
+        employee.setLastName("Employee");
+
+        return employee;
+    }
+
+    private static Compensation compensation(Employee employee, String effectiveDate, String salary) {
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employee);
+        compensation.setEffectiveDate(LocalDate.parse(effectiveDate));
+        compensation.setSalary(new BigDecimal(salary));
+
+        return compensation;
+    }
+}
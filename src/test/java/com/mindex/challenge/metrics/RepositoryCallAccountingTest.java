@@ -0,0 +1,102 @@
+package com.mindex.challenge.metrics;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.service.impl.EmployeeServiceImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "challenge.metrics.query-budget=0")
+public class RepositoryCallAccountingTest {
+
+    private static final String LENNON_ID = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+
+    private String employeeUrl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Before
+    public void setup() {
+        employeeUrl = "http://localhost:" + port + "/employee";
+    }
+
+    @Test
+    public void testCreateIsAccountedAgainstTheRequest() throws InterruptedException {
+        Employee employee = new Employee();
+        employee.setFirstName("Metered");
+        employee.setLastName("Employee");
+
+        restTemplate.postForEntity(employeeUrl, employee, Employee.class);
+
+        // Going over the budget is counted last, after the request's summaries are recorded
+        Counter budgetExceeded = awaitCounted("challenge.request.query.budget.exceeded", "uri", "/employee");
+        assertTrue(budgetExceeded.count() >= 1);
+
+        DistributionSummary repositoryCalls = meterRegistry.find("challenge.request.repository.calls")
+                .tags("method", "POST", "uri", "/employee")
+                .summary();
+        assertNotNull(repositoryCalls);
+        assertTrue(repositoryCalls.max() >= 1);
+
+        Timer insert = meterRegistry.find("challenge.repository.calls")
+                .tags("repository", "EmployeeRepository", "method", "insert")
+                .timer();
+        assertNotNull(insert);
+    }
+
+    @Test
+    public void testServiceAndTraversalMetrics() {
+        restTemplate.getForEntity(employeeUrl + "/{id}/reportingStructure", String.class, LENNON_ID);
+
+        Timer getReportingStructure = meterRegistry.find("challenge.service")
+                .tags("class", EmployeeServiceImpl.class.getName(), "method", "getReportingStructure")
+                .timer();
+        assertNotNull(getReportingStructure);
+        assertTrue(getReportingStructure.count() >= 1);
+
+        DistributionSummary depth = meterRegistry.find("challenge.reporting.structure.depth").summary();
+        assertNotNull(depth);
+        assertEquals(2.0, depth.max(), 0.0);
+    }
+
+    /**
+     * Waits for a request's counter to be incremented, which happens once the request completes, after the response
+     * has already been sent to the client
+     */
+    private Counter awaitCounted(String name, String... tags) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            Counter counter = meterRegistry.find(name)
+                    .tags(tags)
+                    .counter();
+            if ((counter != null && counter.count() > 0) || System.currentTimeMillis() > deadline) {
+                assertNotNull(counter);
+                return counter;
+            }
+
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.mindex.challenge.service.impl;
 
 import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.data.BatchResult;
+import com.mindex.challenge.data.CacheStatistics;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationHistory;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.PayrollRollup;
 import com.mindex.challenge.exceptions.NotFoundException;
 import com.mindex.challenge.service.CompensationService;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -14,20 +20,43 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class CompensationServiceImplTest {
     private String createUrl;
     private String findByEmployeeIdUrl;
+    private String cacheStatisticsUrl;
+    private String findAsOfUrl;
+    private String historyUrl;
+    private String employeeUrl;
+    private String payrollUrl;
+    private String latestBatchUrl;
 
     @Autowired
     private CompensationService compensationService;
@@ -35,6 +64,9 @@ public class CompensationServiceImplTest {
     @Autowired
     private CompensationRepository compensationRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @LocalServerPort
     private int port;
 
@@ -48,6 +80,12 @@ public class CompensationServiceImplTest {
     public void setup() {
         createUrl = "http://localhost:" + port + "/compensation";
         findByEmployeeIdUrl = "http://localhost:" + port + "/employee/{employeeId}/compensation";
+        cacheStatisticsUrl = "http://localhost:" + port + "/compensation/cache/stats";
+        findAsOfUrl = findByEmployeeIdUrl + "?asOf={asOf}";
+        historyUrl = "http://localhost:" + port + "/employee/{employeeId}/compensation/history?limit={limit}";
+        employeeUrl = "http://localhost:" + port + "/employee";
+        payrollUrl = "http://localhost:" + port + "/employee/{employeeId}/payroll";
+        latestBatchUrl = "http://localhost:" + port + "/compensation/latest:batch";
     }
 
     @Test
@@ -75,6 +113,56 @@ public class CompensationServiceImplTest {
         assertEquals(createdCompensation, foundCompensation);
     }
 
+    @Test
+    public void testCompensationStoresOnlyEmployeeId() {
+        Employee employee = createEmployee();
+        Compensation createdCompensation = restTemplate.postForEntity(createUrl, buildCompensation(
+                employee.getEmployeeId(), new BigDecimal("80000"), LocalDate.parse("2022-01-01")), Compensation.class)
+                .getBody();
+        assertNotNull(createdCompensation);
+
+        Document stored = mongoTemplate.findOne(query(where("employeeId").is(employee.getEmployeeId())),
+                Document.class, mongoTemplate.getCollectionName(Compensation.class));
+        assertNotNull(stored);
+        assertFalse(stored.containsKey("employee"));
+
+        // The Employee is filled in as it currently is, not as it was when the Compensation was created
+        employee.setFirstName("Renamed");
+        restTemplate.put(employeeUrl + "/{id}", employee, employee.getEmployeeId());
+
+        Compensation foundCompensation = restTemplate.getForObject(findByEmployeeIdUrl, Compensation.class,
+                employee.getEmployeeId());
+        assertEquals(createdCompensation, foundCompensation);
+        assertEquals("Renamed", foundCompensation.getEmployee().getFirstName());
+        assertEquals("Employee", foundCompensation.getEmployee().getLastName());
+
+        CompensationHistory history = restTemplate.getForObject(historyUrl, CompensationHistory.class,
+                employee.getEmployeeId(), 10);
+        assertEquals("Renamed", history.getCompensations().get(0).getEmployee().getFirstName());
+    }
+
+    @Test
+    public void testConditionalReadFollowsEmployeeChanges() {
+        Employee employee = createEmployee();
+        insertCompensation(employee.getEmployeeId(), new BigDecimal("80000"), LocalDate.parse("2022-01-01"));
+
+        ResponseEntity<Compensation> found = restTemplate.getForEntity(findByEmployeeIdUrl, Compensation.class,
+                employee.getEmployeeId());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(found.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, restTemplate.exchange(findByEmployeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), Compensation.class, employee.getEmployeeId()).getStatusCode());
+
+        // The Employee filled in with the Compensation changed, so the copy the client has is out of date
+        employee.setFirstName("Renamed");
+        restTemplate.put(employeeUrl + "/{id}", employee, employee.getEmployeeId());
+
+        ResponseEntity<Compensation> modified = restTemplate.exchange(findByEmployeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), Compensation.class, employee.getEmployeeId());
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals("Renamed", modified.getBody().getEmployee().getFirstName());
+    }
+
     @Test
     public void testFindByEmployeeIdMultipleCompensations() {
         String employeeId = UUID.randomUUID().toString();
@@ -93,6 +181,143 @@ public class CompensationServiceImplTest {
         assertEquals(latestCompensation, expectedCompensation);
     }
 
+    @Test
+    public void testCreateOnlyReplacesCachedCompensationWhenMoreRecent() {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation cachedCompensation = insertCompensation(employeeId, new BigDecimal("100000"),
+                LocalDate.parse("2021-01-01"));
+
+        // Fill the cache
+        assertEquals(cachedCompensation, restTemplate.getForEntity(findByEmployeeIdUrl, Compensation.class,
+                        employeeId)
+                .getBody());
+        CacheStatistics statisticsBeforeHit = restTemplate.getForEntity(cacheStatisticsUrl, CacheStatistics.class)
+                .getBody();
+
+        // Older compensations leave the cached compensation in place
+        restTemplate.postForEntity(createUrl, buildCompensation(employeeId, new BigDecimal("90000"),
+                LocalDate.parse("2020-01-01")), Compensation.class);
+        assertEquals(cachedCompensation, restTemplate.getForEntity(findByEmployeeIdUrl, Compensation.class,
+                        employeeId)
+                .getBody());
+
+        CacheStatistics statisticsAfterHit = restTemplate.getForEntity(cacheStatisticsUrl, CacheStatistics.class)
+                .getBody();
+        assertNotNull(statisticsBeforeHit);
+        assertNotNull(statisticsAfterHit);
+        assertEquals(statisticsBeforeHit.getHitCount() + 1, statisticsAfterHit.getHitCount());
+
+        // More recent compensations replace it
+        Compensation newerCompensation = buildCompensation(employeeId, new BigDecimal("110000"),
+                LocalDate.parse("2022-01-01"));
+        restTemplate.postForEntity(createUrl, newerCompensation, Compensation.class);
+        assertEquals(newerCompensation, restTemplate.getForEntity(findByEmployeeIdUrl, Compensation.class,
+                        employeeId)
+                .getBody());
+    }
+
+    @Test
+    public void testCreateWithoutEffectiveDateOrEmployee() {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation cachedCompensation = insertCompensation(employeeId, new BigDecimal("100000"),
+                LocalDate.parse("2021-01-01"));
+        assertEquals(cachedCompensation, restTemplate.getForObject(findByEmployeeIdUrl, Compensation.class,
+                employeeId));
+
+        // A missing effectiveDate is earlier than any other, so the cached Compensation stays the latest
+        assertEquals(HttpStatus.OK, restTemplate.postForEntity(createUrl, buildCompensation(employeeId,
+                new BigDecimal("90000"), null), Compensation.class).getStatusCode());
+        assertEquals(cachedCompensation, restTemplate.getForObject(findByEmployeeIdUrl, Compensation.class,
+                employeeId));
+
+        Compensation withoutEmployee = new Compensation();
+        withoutEmployee.setSalary(new BigDecimal("90000"));
+        withoutEmployee.setEffectiveDate(LocalDate.parse("2022-01-01"));
+        assertEquals(HttpStatus.OK, restTemplate.postForEntity(createUrl, withoutEmployee, Compensation.class)
+                .getStatusCode());
+    }
+
+    @Test
+    public void testFindByEmployeeIdAsOfWithUndatedLatest() throws NotFoundException {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation undatedCompensation = insertCompensation(employeeId, new BigDecimal("100000"), null);
+        assertEquals(undatedCompensation, compensationService.findByEmployeeId(employeeId));
+        exceptionRule.expect(NotFoundException.class);
+        exceptionRule.expectMessage("Compensation not found for employee: " + employeeId + " as of 2022-01-01");
+
+        compensationService.findByEmployeeIdAsOf(employeeId, LocalDate.parse("2022-01-01"));
+    }
+
+    @Test
+    public void testFindByEmployeeIds() {
+        Employee employee = createEmployee();
+        String uncachedEmployeeId = employee.getEmployeeId();
+        String cachedEmployeeId = UUID.randomUUID().toString();
+        String missingEmployeeId = UUID.randomUUID().toString();
+        insertCompensation(uncachedEmployeeId, new BigDecimal("100000"), LocalDate.parse("2021-01-01"));
+        Compensation uncachedLatest = insertCompensation(uncachedEmployeeId, new BigDecimal("110000"),
+                LocalDate.parse("2022-01-01"));
+        insertCompensation(uncachedEmployeeId, new BigDecimal("90000"), LocalDate.parse("2020-01-01"));
+        Compensation cachedLatest = insertCompensation(cachedEmployeeId, new BigDecimal("70000"),
+                LocalDate.parse("2022-01-01"));
+        restTemplate.getForEntity(findByEmployeeIdUrl, Compensation.class, cachedEmployeeId);
+
+        BatchResult<Compensation> result = restTemplate.exchange(latestBatchUrl, HttpMethod.POST,
+                new HttpEntity<>(Arrays.asList(missingEmployeeId, uncachedEmployeeId, cachedEmployeeId,
+                        uncachedEmployeeId)),
+                new ParameterizedTypeReference<BatchResult<Compensation>>() {
+                }).getBody();
+
+        Map<String, Compensation> expectedFound = new LinkedHashMap<>();
+        expectedFound.put(uncachedEmployeeId, uncachedLatest);
+        expectedFound.put(cachedEmployeeId, cachedLatest);
+        assertEquals(new BatchResult<>(expectedFound, Collections.singletonList(missingEmployeeId)), result);
+        assertEquals("Payroll", result.getFound().get(uncachedEmployeeId).getEmployee().getFirstName());
+
+        List<String> tooManyEmployeeIds = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            tooManyEmployeeIds.add(UUID.randomUUID().toString());
+        }
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity(latestBatchUrl, tooManyEmployeeIds,
+                String.class).getStatusCode());
+    }
+
+    @Test
+    public void testCompensationsOnTheSameDateTieBreakOnId() {
+        String employeeId = UUID.randomUUID().toString();
+        ObjectId lowerId = new ObjectId();
+        ObjectId higherId = new ObjectId();
+        // Stored first but wins the tie on id
+        Compensation expectedCompensation = insertCompensation(higherId, employeeId, new BigDecimal("120000"),
+                LocalDate.parse("2022-01-01"));
+        insertCompensation(lowerId, employeeId, new BigDecimal("110000"), LocalDate.parse("2022-01-01"));
+
+        assertEquals(expectedCompensation, restTemplate.getForObject(findAsOfUrl, Compensation.class, employeeId,
+                "2022-06-30"));
+
+        BatchResult<Compensation> batchResult = restTemplate.exchange(latestBatchUrl, HttpMethod.POST,
+                new HttpEntity<>(Collections.singletonList(employeeId)),
+                new ParameterizedTypeReference<BatchResult<Compensation>>() {
+                }).getBody();
+        assertNotNull(batchResult);
+        assertEquals(expectedCompensation, batchResult.getFound().get(employeeId));
+
+        // Read from the repository, then from the cache
+        assertEquals(expectedCompensation, restTemplate.getForObject(findByEmployeeIdUrl, Compensation.class,
+                employeeId));
+        assertEquals(expectedCompensation, restTemplate.getForObject(findByEmployeeIdUrl, Compensation.class,
+                employeeId));
+
+        // A Compensation created later on the same date has a greater id, so it replaces the cached one
+        Compensation newerCompensation = buildCompensation(employeeId, new BigDecimal("130000"),
+                LocalDate.parse("2022-01-01"));
+        restTemplate.postForEntity(createUrl, newerCompensation, Compensation.class);
+        assertEquals(newerCompensation, restTemplate.getForObject(findByEmployeeIdUrl, Compensation.class,
+                employeeId));
+        assertEquals(newerCompensation, compensationRepository.findFirstByEmployeeIdOrderByEffectiveDateDescIdDesc(
+                employeeId));
+    }
+
     @Test
     public void testFindByEmployeeIdNotFound() throws NotFoundException {
         String employeeId = UUID.randomUUID().toString();
@@ -102,7 +327,176 @@ public class CompensationServiceImplTest {
         compensationService.findByEmployeeId(employeeId);
     }
 
+    @Test
+    public void testFindByEmployeeIdAsOf() {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation first = insertCompensation(employeeId, new BigDecimal("100000"), LocalDate.parse("2021-01-01"));
+        Compensation second = insertCompensation(employeeId, new BigDecimal("110000"), LocalDate.parse("2022-01-01"));
+        Compensation third = insertCompensation(employeeId, new BigDecimal("120000"), LocalDate.parse("2023-01-01"));
+
+        assertEquals(first, restTemplate.getForObject(findAsOfUrl, Compensation.class, employeeId, "2021-12-31"));
+        assertEquals(second, restTemplate.getForObject(findAsOfUrl, Compensation.class, employeeId, "2022-01-01"));
+        assertEquals(second, restTemplate.getForObject(findAsOfUrl, Compensation.class, employeeId, "2022-06-30"));
+        assertEquals(third, restTemplate.getForObject(findAsOfUrl, Compensation.class, employeeId, "2030-01-01"));
+    }
+
+    @Test
+    public void testFindByEmployeeIdAsOfNotFound() throws NotFoundException {
+        String employeeId = UUID.randomUUID().toString();
+        insertCompensation(employeeId, new BigDecimal("100000"), LocalDate.parse("2021-01-01"));
+        exceptionRule.expect(NotFoundException.class);
+        exceptionRule.expectMessage("Compensation not found for employee: " + employeeId + " as of 2020-12-31");
+
+        compensationService.findByEmployeeIdAsOf(employeeId, LocalDate.parse("2020-12-31"));
+    }
+
+    @Test
+    public void testFindHistoryByEmployeeIdPagesInEffectiveDateOrder() {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation fourth = insertCompensation(employeeId, new BigDecimal("130000"), LocalDate.parse("2023-01-01"));
+        Compensation first = insertCompensation(employeeId, new BigDecimal("100000"), LocalDate.parse("2021-01-01"));
+        Compensation second = insertCompensation(employeeId, new BigDecimal("110000"), LocalDate.parse("2022-01-01"));
+        // Shares its effectiveDate with the second, so the page boundary falls between them
+        Compensation third = insertCompensation(employeeId, new BigDecimal("120000"), LocalDate.parse("2022-01-01"));
+        Compensation fifth = insertCompensation(employeeId, new BigDecimal("140000"), LocalDate.parse("2024-01-01"));
+
+        List<Compensation> history = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        CompensationHistory page = restTemplate.getForObject(historyUrl, CompensationHistory.class, employeeId, 2);
+        while (true) {
+            assertNotNull(page);
+            history.addAll(page.getCompensations());
+            pageSizes.add(page.getCompensations().size());
+            if (page.getNextCursor() == null) {
+                break;
+            }
+
+            page = restTemplate.getForObject(historyUrl + "&cursor={cursor}", CompensationHistory.class, employeeId,
+                    2, page.getNextCursor());
+        }
+
+        assertEquals(Arrays.asList(2, 2, 1), pageSizes);
+        assertEquals(Arrays.asList(first, second, third, fourth, fifth), history);
+    }
+
+    @Test
+    public void testFindHistoryByEmployeeIdPagesAcrossUndatedCompensations() {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation third = insertCompensation(employeeId, new BigDecimal("120000"), LocalDate.parse("2022-01-01"));
+        // Compensations without an effectiveDate come first, in id order
+        Compensation first = insertCompensation(employeeId, new BigDecimal("100000"), null);
+        Compensation second = insertCompensation(employeeId, new BigDecimal("110000"), null);
+
+        List<Compensation> history = new ArrayList<>();
+        CompensationHistory page = restTemplate.getForObject(historyUrl, CompensationHistory.class, employeeId, 1);
+        while (true) {
+            assertNotNull(page);
+            history.addAll(page.getCompensations());
+            if (page.getNextCursor() == null) {
+                break;
+            }
+
+            page = restTemplate.getForObject(historyUrl + "&cursor={cursor}", CompensationHistory.class, employeeId,
+                    1, page.getNextCursor());
+        }
+
+        assertEquals(Arrays.asList(first, second, third), history);
+    }
+
+    @Test
+    public void testFindHistoryByEmployeeIdLastPage() {
+        String employeeId = UUID.randomUUID().toString();
+        Compensation compensation = insertCompensation(employeeId, new BigDecimal("100000"),
+                LocalDate.parse("2021-01-01"));
+
+        CompensationHistory page = restTemplate.getForObject(historyUrl, CompensationHistory.class, employeeId, 1);
+
+        assertNotNull(page);
+        assertEquals(Arrays.asList(compensation), page.getCompensations());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testFindHistoryByEmployeeIdInvalidRequests() {
+        String employeeId = UUID.randomUUID().toString();
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(historyUrl + "&cursor={cursor}", String.class,
+                        employeeId, 2, "not-a-cursor")
+                .getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(historyUrl, String.class, employeeId, 0)
+                .getStatusCode());
+    }
+
+    @Test
+    public void testGetPayrollRollupFollowsCreatesAndUpdates() {
+        Employee firstReport = createEmployee();
+        Employee secondReport = createEmployee();
+        Employee manager = createEmployee(firstReport, secondReport);
+
+        restTemplate.postForEntity(createUrl, buildCompensation(manager.getEmployeeId(), new BigDecimal("150000"),
+                LocalDate.parse("2022-01-01")), Compensation.class);
+        restTemplate.postForEntity(createUrl, buildCompensation(firstReport.getEmployeeId(), new BigDecimal("100000"),
+                LocalDate.parse("2022-01-01")), Compensation.class);
+        restTemplate.postForEntity(createUrl, buildCompensation(secondReport.getEmployeeId(), new BigDecimal("90000"),
+                LocalDate.parse("2022-01-01")), Compensation.class);
+        // A raise replaces the previous salary
+        restTemplate.postForEntity(createUrl, buildCompensation(secondReport.getEmployeeId(), new BigDecimal("95000"),
+                LocalDate.parse("2023-01-01")), Compensation.class);
+
+        assertEquals(new PayrollRollup(manager.getEmployeeId(), 3, 3, new BigDecimal("345000"),
+                        new BigDecimal("115000.00")),
+                restTemplate.getForObject(payrollUrl, PayrollRollup.class, manager.getEmployeeId()));
+
+        // Moving a report out from under the manager takes their salary with them
+        manager.setDirectReports(Arrays.asList(stub(firstReport)));
+        restTemplate.put(employeeUrl + "/{id}", manager, manager.getEmployeeId());
+
+        assertEquals(new PayrollRollup(manager.getEmployeeId(), 2, 2, new BigDecimal("250000"),
+                        new BigDecimal("125000.00")),
+                restTemplate.getForObject(payrollUrl, PayrollRollup.class, manager.getEmployeeId()));
+    }
+
+    @Test
+    public void testGetPayrollRollupNotFound() throws NotFoundException {
+        String employeeId = UUID.randomUUID().toString();
+        exceptionRule.expect(NotFoundException.class);
+        exceptionRule.expectMessage("Invalid employeeId: " + employeeId);
+
+        compensationService.getPayrollRollup(employeeId);
+    }
+
+    private Employee createEmployee(Employee... directReports) {
+        Employee employee = new Employee();
+        employee.setFirstName("Payroll");
+        employee.setLastName("Employee");
+        List<Employee> reportStubs = new ArrayList<>();
+        for (Employee directReport : directReports) {
+            reportStubs.add(stub(directReport));
+        }
+        employee.setDirectReports(reportStubs);
+
+        return restTemplate.postForEntity(employeeUrl, employee, Employee.class).getBody();
+    }
+
+    private static Employee stub(Employee employee) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employee.getEmployeeId());
+        return stub;
+    }
+
     private Compensation insertCompensation(String employeeId, BigDecimal salary, LocalDate effectiveDate) {
+        return compensationRepository.insert(buildCompensation(employeeId, salary, effectiveDate));
+    }
+
+    private Compensation insertCompensation(ObjectId id, String employeeId, BigDecimal salary,
+                                            LocalDate effectiveDate) {
+        Compensation compensation = buildCompensation(employeeId, salary, effectiveDate);
+        compensation.setId(id.toHexString());
+
+        return compensationRepository.insert(compensation);
+    }
+
+    private Compensation buildCompensation(String employeeId, BigDecimal salary, LocalDate effectiveDate) {
         Employee employee = new Employee();
         employee.setEmployeeId(employeeId);
         Compensation compensation = new Compensation();
@@ -110,6 +504,6 @@ public class CompensationServiceImplTest {
         compensation.setSalary(salary);
         compensation.setEffectiveDate(effectiveDate);
 
-        return compensationRepository.insert(compensation);
+        return compensation;
     }
 }
@@ -0,0 +1,89 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Employee;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class EmployeeCacheTest {
+
+    private EmployeeCache employeeCache;
+
+    @Before
+    public void setup() {
+        employeeCache = new EmployeeCache(100);
+    }
+
+    @Test
+    public void testFill() {
+        long versionBeforeReading = employeeCache.getVersion("employee");
+        Employee employee = buildEmployee("employee", "Developer");
+        employeeCache.fill(employee, versionBeforeReading);
+
+        Employee cachedEmployee = employeeCache.get("employee");
+        assertEquals(employee, cachedEmployee);
+        assertNotSame(employee, cachedEmployee);
+        assertNull(employeeCache.get("other employee"));
+    }
+
+    @Test
+    public void testCopiesDirectReports() {
+        Employee report = buildEmployee("report", "Developer");
+        Employee employee = buildEmployee("employee", "Development Manager");
+        employee.setDirectReports(new ArrayList<>(Collections.singletonList(report)));
+        employeeCache.write(employee, written -> {
+        });
+
+        // Changing the written Employee's list or a copy handed out does not reach the cached entry
+        employee.getDirectReports().add(buildEmployee("other report", "Developer"));
+        Employee cachedEmployee = employeeCache.get("employee");
+        cachedEmployee.getDirectReports().clear();
+        report.setPosition("Development Manager");
+
+        List<Employee> cachedReports = employeeCache.get("employee").getDirectReports();
+        assertEquals(Collections.singletonList(buildEmployee("report", "Developer")), cachedReports);
+        assertNotSame(cachedReports, employeeCache.get("employee").getDirectReports());
+    }
+
+    @Test
+    public void testFillRacingWithWrite() {
+        long versionBeforeReading = employeeCache.getVersion("employee");
+        Employee staleEmployee = buildEmployee("employee", "Developer");
+
+        Employee updatedEmployee = buildEmployee("employee", "Development Manager");
+        List<Employee> written = new ArrayList<>();
+        employeeCache.write(updatedEmployee, written::add);
+
+        employeeCache.fill(staleEmployee, versionBeforeReading);
+
+        assertEquals(1, written.size());
+        assertEquals(updatedEmployee, employeeCache.get("employee"));
+    }
+
+    @Test
+    public void testFillAfterWriteAndEviction() {
+        long versionBeforeReading = employeeCache.getVersion("employee");
+        employeeCache.write(buildEmployee("employee", "Development Manager"), employee -> {
+        });
+        employeeCache.getCache().invalidateAll();
+
+        employeeCache.fill(buildEmployee("employee", "Developer"), versionBeforeReading);
+
+        assertNull(employeeCache.get("employee"));
+    }
+
+    private static Employee buildEmployee(String employeeId, String position) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        employee.setPosition(position);
+
+        return employee;
+    }
+}
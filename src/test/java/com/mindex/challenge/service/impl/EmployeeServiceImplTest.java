@@ -1,9 +1,16 @@
 package com.mindex.challenge.service.impl;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mindex.challenge.controller.EmployeeController;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.BatchResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeePatch;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.ReportsPage;
 import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.exceptions.PreconditionFailedException;
 import com.mindex.challenge.service.EmployeeService;
 import org.junit.Before;
 import org.junit.Rule;
@@ -14,20 +21,43 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.util.Collections.emptyList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -36,6 +66,7 @@ public class EmployeeServiceImplTest {
     private String employeeUrl;
     private String employeeIdUrl;
     private String reportingStructureUrl;
+    private String reportsUrl;
 
     @Autowired
     private EmployeeService employeeService;
@@ -43,6 +74,15 @@ public class EmployeeServiceImplTest {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MaterializedReportCounts reportCounts;
+
+    @Autowired
+    private EmployeeController employeeController;
+
     @LocalServerPort
     private int port;
 
@@ -57,6 +97,7 @@ public class EmployeeServiceImplTest {
         employeeUrl = "http://localhost:" + port + "/employee";
         employeeIdUrl = employeeUrl + "/{id}";
         reportingStructureUrl = employeeIdUrl + "/reportingStructure";
+        reportsUrl = employeeIdUrl + "/reports";
     }
 
     @Test
@@ -100,6 +141,404 @@ public class EmployeeServiceImplTest {
         assertEquals(readEmployee, updatedEmployee);
     }
 
+    @Test
+    public void testBulkCreate() throws NotFoundException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        String body = "{\"firstName\": \"Bulk\", \"lastName\": \"One\"}\n"
+                + "{\"firstName\": \n"
+                + "\n"
+                + "{\"firstName\": \"Bulk\", \"lastName\": \"Two\"}\n";
+
+        String response = restTemplate.postForEntity(employeeUrl + "/bulk", new HttpEntity<>(body, headers),
+                        String.class)
+                .getBody();
+
+        assertNotNull(response);
+        String[] results = response.split("\n");
+        assertEquals(3, results.length);
+        assertTrue(results[0].startsWith("{\"index\":0,\"employeeId\":"));
+        assertTrue(results[1].startsWith("{\"index\":1,\"error\":"));
+        assertTrue(results[2].startsWith("{\"index\":2,\"employeeId\":"));
+
+        String employeeId = results[2].substring(results[2].indexOf(":\"") + 2, results[2].lastIndexOf('"'));
+        assertEquals("Two", employeeService.read(employeeId).getLastName());
+    }
+
+    @Test
+    public void testBulkCreateWritesResultsForInvalidLinesInBatches() throws NotFoundException {
+        Object bulkCreateBatchSize = ReflectionTestUtils.getField(employeeController, "bulkCreateBatchSize");
+        ReflectionTestUtils.setField(employeeController, "bulkCreateBatchSize", 2);
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 5; i++) {
+                body.append("{\"firstName\": \n");
+            }
+            body.append("{\"firstName\": \"Bulk\", \"lastName\": \"Last\"}\n");
+
+            String response = restTemplate.postForEntity(employeeUrl + "/bulk",
+                            new HttpEntity<>(body.toString(), headers), String.class)
+                    .getBody();
+
+            assertNotNull(response);
+            String[] results = response.split("\n");
+            assertEquals(6, results.length);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(results[i].startsWith("{\"index\":" + i + ",\"error\":"));
+            }
+            assertTrue(results[5].startsWith("{\"index\":5,\"employeeId\":"));
+
+            String employeeId = results[5].substring(results[5].indexOf(":\"") + 2, results[5].lastIndexOf('"'));
+            assertEquals("Last", employeeService.read(employeeId).getLastName());
+        } finally {
+            ReflectionTestUtils.setField(employeeController, "bulkCreateBatchSize", bulkCreateBatchSize);
+        }
+    }
+
+    @Test
+    public void testBulkCreateRejectsNullLine() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        String body = "null\n"
+                + "{\"firstName\": \"Bulk\", \"lastName\": \"AfterNull\"}\n";
+
+        String response = restTemplate.postForEntity(employeeUrl + "/bulk", new HttpEntity<>(body, headers),
+                        String.class)
+                .getBody();
+
+        assertNotNull(response);
+        String[] results = response.split("\n");
+        assertEquals(2, results.length);
+        assertTrue(results[0].startsWith("{\"index\":0,\"error\":"));
+        assertTrue(results[1].startsWith("{\"index\":1,\"employeeId\":"));
+    }
+
+    @Test
+    public void testUpdateReplacesStoredEmployee() {
+        Employee employee = createEmployee(UUID.randomUUID().toString(), null);
+        employee.setPosition("Development Manager");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        restTemplate.exchange(employeeIdUrl,
+                HttpMethod.PUT,
+                new HttpEntity<>(employee, headers),
+                Employee.class,
+                employee.getEmployeeId());
+
+        Employee readEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, employee.getEmployeeId())
+                .getBody();
+
+        assertEquals(employee, readEmployee);
+        assertEquals(1, mongoTemplate.count(query(where("employeeId").is(employee.getEmployeeId())),
+                Employee.class));
+    }
+
+    @Test
+    public void testPatchOnlyChangesSuppliedFields() throws NotFoundException {
+        Employee firstReport = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee secondReport = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee thirdReport = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(), Arrays.asList(stub(firstReport),
+                stub(secondReport)));
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setPosition("Development Manager");
+        patch.setRemoveDirectReports(Collections.singletonList(firstReport.getEmployeeId()));
+        patch.setAddDirectReports(Arrays.asList(thirdReport.getEmployeeId(), secondReport.getEmployeeId()));
+
+        WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + port)
+                .build()
+                .patch()
+                .uri("/employee/{id}", manager.getEmployeeId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.position").isEqualTo("Development Manager")
+                .jsonPath("$.firstName").isEqualTo("John");
+
+        manager.setPosition("Development Manager");
+        manager.setDirectReports(Arrays.asList(stub(thirdReport), stub(secondReport)));
+        assertEquals(manager, employeeRepository.findByEmployeeId(manager.getEmployeeId()));
+        assertEquals(manager, employeeService.read(manager.getEmployeeId()));
+        // One write, so one version increment
+        assertEquals(1L, employeeService.readVersion(manager.getEmployeeId()));
+        assertTrue(employeeService.isReportOf(thirdReport.getEmployeeId(), manager.getEmployeeId()));
+        assertFalse(employeeService.isReportOf(firstReport.getEmployeeId(), manager.getEmployeeId()));
+    }
+
+    @Test
+    public void testPatchAddsFirstDirectReport() throws NotFoundException {
+        Employee report = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee employee = createEmployee(UUID.randomUUID().toString(), emptyList());
+        // Replacing the employee without directReports leaves none to add to
+        employee.setDirectReports(null);
+        employeeService.update(employee);
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setAddDirectReports(Collections.singletonList(report.getEmployeeId()));
+        Employee patchedEmployee = employeeService.patch(employee.getEmployeeId(), patch);
+
+        assertEquals(Collections.singletonList(stub(report)), patchedEmployee.getDirectReports());
+        assertEquals(1, employeeService.getReportingStructure(employee.getEmployeeId()).getNumberOfReports());
+    }
+
+    @Test
+    public void testPatchAddingEmbeddedReportListsItOnce() throws NotFoundException, PreconditionFailedException {
+        Employee report = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee otherReport = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(), Arrays.asList(report, otherReport));
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setAddDirectReports(Collections.singletonList(report.getEmployeeId()));
+        Employee patched = employeeService.patch(manager.getEmployeeId(), patch);
+
+        assertEquals(Arrays.asList(otherReport, stub(report)), patched.getDirectReports());
+
+        patch.setAddDirectReports(Collections.singletonList(otherReport.getEmployeeId()));
+        patched = employeeService.patch(manager.getEmployeeId(), patch, patched.getVersion());
+
+        assertEquals(Arrays.asList(stub(report), stub(otherReport)), patched.getDirectReports());
+        assertEquals(2, employeeService.getReportingStructure(manager.getEmployeeId()).getNumberOfReports());
+    }
+
+    @Test
+    public void testPatchNotFound() throws NotFoundException {
+        String employeeId = UUID.randomUUID().toString();
+        exceptionRule.expect(NotFoundException.class);
+        exceptionRule.expectMessage("Invalid employeeId: " + employeeId);
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setPosition("Development Manager");
+        employeeService.patch(employeeId, patch);
+    }
+
+    @Test
+    public void testReadFields() throws NotFoundException {
+        Employee report = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee employee = createEmployee(UUID.randomUUID().toString(), Collections.singletonList(stub(report)));
+
+        Map<String, Object> expectedFields = new HashMap<>();
+        expectedFields.put("employeeId", employee.getEmployeeId());
+        expectedFields.put("firstName", "John");
+
+        // Read from the repository with a projection, then from the cache once the whole Employee has been read
+        assertEquals(expectedFields, restTemplate.getForEntity(employeeIdUrl + "?fields=employeeId,firstName",
+                Map.class, employee.getEmployeeId()).getBody());
+        employeeService.read(employee.getEmployeeId());
+        assertEquals(expectedFields, restTemplate.getForEntity(employeeIdUrl + "?fields=employeeId,firstName",
+                Map.class, employee.getEmployeeId()).getBody());
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(employeeIdUrl + "?fields=salary",
+                String.class, employee.getEmployeeId()).getStatusCode());
+    }
+
+    @Test
+    public void testGetReportingStructureFields() {
+        Employee report = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(), Collections.singletonList(stub(report)));
+
+        Object target = AopTestUtils.getTargetObject(employeeService);
+        Object useOrgGraphIndex = ReflectionTestUtils.getField(target, "useOrgGraphIndex");
+        ReflectionTestUtils.setField(target, "useOrgGraphIndex", false);
+        try {
+            ReportingStructure reportingStructure = restTemplate.getForEntity(reportingStructureUrl
+                    + "?fields=lastName", ReportingStructure.class, manager.getEmployeeId()).getBody();
+
+            Employee expectedReport = stub(report);
+            expectedReport.setLastName("Doe");
+            expectedReport.setDirectReports(emptyList());
+            Employee expectedManager = stub(manager);
+            expectedManager.setLastName("Doe");
+            expectedManager.setDirectReports(Collections.singletonList(expectedReport));
+
+            assertEquals(expectedManager, reportingStructure.getEmployee());
+            assertEquals(1, reportingStructure.getNumberOfReports());
+        } finally {
+            ReflectionTestUtils.setField(target, "useOrgGraphIndex", useOrgGraphIndex);
+        }
+    }
+
+    @Test
+    public void testReadAll() {
+        Employee first = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee second = createEmployee(UUID.randomUUID().toString(), emptyList());
+        String missingId = UUID.randomUUID().toString();
+
+        BatchResult<Employee> result = restTemplate.exchange(employeeUrl + "?ids={ids}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<BatchResult<Employee>>() {
+                }, String.join(",", second.getEmployeeId(), missingId, first.getEmployeeId())).getBody();
+
+        Map<String, Employee> expectedFound = new LinkedHashMap<>();
+        expectedFound.put(second.getEmployeeId(), second);
+        expectedFound.put(first.getEmployeeId(), first);
+        assertEquals(new BatchResult<>(expectedFound, Collections.singletonList(missingId)), result);
+    }
+
+    @Test
+    public void testNumberOfReportsMaintainedOnWrite() throws NotFoundException {
+        Employee firstReport = employeeService.create(newEmployee());
+        Employee secondReport = employeeService.create(newEmployee());
+        Employee thirdReport = employeeService.create(newEmployee());
+        Employee manager = employeeService.create(newEmployee(firstReport, secondReport));
+        Employee director = employeeService.create(newEmployee(manager));
+
+        assertEquals(2, employeeService.getNumberOfReports(manager.getEmployeeId()));
+        assertEquals(3, restTemplate.getForObject(employeeIdUrl + "/numberOfReports", Integer.class,
+                director.getEmployeeId()).intValue());
+
+        // Adding a report to the manager is applied to the director above them too
+        manager.setDirectReports(Arrays.asList(stub(firstReport), stub(secondReport), stub(thirdReport)));
+        employeeService.update(manager);
+
+        assertEquals(Integer.valueOf(3), storedNumberOfReports(manager));
+        assertEquals(Integer.valueOf(4), storedNumberOfReports(director));
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setRemoveDirectReports(Collections.singletonList(firstReport.getEmployeeId()));
+        employeeService.patch(manager.getEmployeeId(), patch);
+
+        assertEquals(Integer.valueOf(2), storedNumberOfReports(manager));
+        assertEquals(Integer.valueOf(3), storedNumberOfReports(director));
+        assertEquals(employeeService.getReportingStructure(director.getEmployeeId()).getNumberOfReports(),
+                employeeService.getNumberOfReports(director.getEmployeeId()));
+
+        // Adding back a report that is already listed moves it without changing any count
+        patch = new EmployeePatch();
+        patch.setAddDirectReports(Collections.singletonList(secondReport.getEmployeeId()));
+        employeeService.patch(manager.getEmployeeId(), patch);
+
+        assertEquals(Integer.valueOf(2), storedNumberOfReports(manager));
+        assertEquals(Integer.valueOf(3), storedNumberOfReports(director));
+
+        // The director's version is left alone since nothing about them that is served changed
+        assertEquals(0L, employeeService.readVersion(director.getEmployeeId()));
+    }
+
+    @Test
+    public void testNumberOfReportsUnderConcurrentPatches() throws Exception {
+        Employee manager = employeeService.create(newEmployee());
+        Employee director = employeeService.create(newEmployee(manager));
+        List<Employee> reports = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reports.add(employeeService.create(newEmployee()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(reports.size());
+        try {
+            List<Future<Employee>> patches = new ArrayList<>();
+            for (Employee report : reports) {
+                EmployeePatch patch = new EmployeePatch();
+                patch.setAddDirectReports(Collections.singletonList(report.getEmployeeId()));
+                patches.add(executor.submit(() -> employeeService.patch(manager.getEmployeeId(), patch)));
+            }
+            for (Future<Employee> patch : patches) {
+                patch.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(Integer.valueOf(8), storedNumberOfReports(manager));
+        assertEquals(Integer.valueOf(9), storedNumberOfReports(director));
+    }
+
+    @Test
+    public void testNumberOfReportsVerifierRepairsDrift() throws NotFoundException {
+        Employee report = employeeService.create(newEmployee());
+        Employee manager = employeeService.create(newEmployee(report));
+        mongoTemplate.updateFirst(query(where("employeeId").is(manager.getEmployeeId())),
+                new Update().set("numberOfReports", 42), mongoTemplate.getCollectionName(Employee.class));
+        assertEquals(42, employeeService.getNumberOfReports(manager.getEmployeeId()));
+        // Every path answers with the stored count
+        assertEquals(42, employeeService.getReportingStructure(manager.getEmployeeId()).getNumberOfReports());
+
+        assertTrue(reportCounts.verify() >= 1);
+        assertEquals(1, employeeService.getNumberOfReports(manager.getEmployeeId()));
+
+        // Counts that haven't been stored yet are computed from the reporting structure
+        mongoTemplate.updateFirst(query(where("employeeId").is(manager.getEmployeeId())),
+                new Update().unset("numberOfReports"), mongoTemplate.getCollectionName(Employee.class));
+        assertEquals(1, employeeService.getNumberOfReports(manager.getEmployeeId()));
+    }
+
+    @Test
+    public void testConditionalRead() {
+        Employee employee = createEmployee(UUID.randomUUID().toString(), emptyList());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"0\"");
+        ResponseEntity<Employee> notModified = restTemplate.exchange(employeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), Employee.class, employee.getEmployeeId());
+
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals("\"0\"", notModified.getHeaders().getETag());
+        assertNull(notModified.getBody());
+
+        employeeService.update(employee);
+        ResponseEntity<Employee> modified = restTemplate.exchange(employeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), Employee.class, employee.getEmployeeId());
+
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals("\"1\"", modified.getHeaders().getETag());
+        assertEquals(employee, modified.getBody());
+
+        // Revalidating against the cached Employee
+        headers.setIfNoneMatch(modified.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, restTemplate.exchange(employeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), Employee.class, employee.getEmployeeId()).getStatusCode());
+    }
+
+    @Test
+    public void testUpdateIfMatch() throws NotFoundException {
+        Employee employee = createEmployee(UUID.randomUUID().toString(), emptyList());
+        employee.setPosition("Development Manager");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setIfMatch("\"0\"");
+        ResponseEntity<Employee> updated = restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(employee, headers), Employee.class, employee.getEmployeeId());
+
+        assertEquals(HttpStatus.OK, updated.getStatusCode());
+        assertEquals("\"1\"", updated.getHeaders().getETag());
+
+        // The same write is now based on a stale version
+        employee.setPosition("Developer");
+        ResponseEntity<String> stale = restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(employee, headers), String.class, employee.getEmployeeId());
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, stale.getStatusCode());
+        assertEquals("Development Manager", employeeService.read(employee.getEmployeeId()).getPosition());
+    }
+
+    @Test
+    public void testPatchIfMatch() throws NotFoundException, PreconditionFailedException {
+        Employee firstReport = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee secondReport = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(),
+                Collections.singletonList(stub(firstReport)));
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setPosition("Development Manager");
+        patch.setRemoveDirectReports(Collections.singletonList(firstReport.getEmployeeId()));
+        patch.setAddDirectReports(Collections.singletonList(secondReport.getEmployeeId()));
+        Employee patched = employeeService.patch(manager.getEmployeeId(), patch, 0L);
+
+        assertEquals(Long.valueOf(1), patched.getVersion());
+        assertEquals("Development Manager", patched.getPosition());
+        assertEquals(Collections.singletonList(stub(secondReport)), patched.getDirectReports());
+
+        exceptionRule.expect(PreconditionFailedException.class);
+        employeeService.patch(manager.getEmployeeId(), patch, 0L);
+    }
+
     @Test
     public void testGetReportingStructureZeroReports() {
         Employee createdEmployee = createEmployee(UUID.randomUUID().toString(), null);
@@ -164,6 +603,123 @@ public class EmployeeServiceImplTest {
 
     }
 
+    @Test
+    public void testGetReportingStructureFillsOutEveryLevel() {
+        Employee level4Employee = createEmployee("Stub Level 4 Employee", emptyList());
+        Employee level3Employee = createEmployee("Stub Level 3 Employee",
+                Collections.singletonList(stub(level4Employee)));
+        Employee level2Employee = createEmployee("Stub Level 2 Employee",
+                Collections.singletonList(stub(level3Employee)));
+        Employee level1Employee = createEmployee("Stub Level 1 Employee",
+                Collections.singletonList(stub(level2Employee)));
+
+        ReportingStructure actualReportingStructure = restTemplate.getForEntity(reportingStructureUrl,
+                        ReportingStructure.class, level1Employee.getEmployeeId())
+                .getBody();
+
+        assertNotNull(actualReportingStructure);
+        assertEquals(3, actualReportingStructure.getNumberOfReports());
+        Employee filledOutLevel4Employee = actualReportingStructure.getEmployee()
+                .getDirectReports().get(0)
+                .getDirectReports().get(0)
+                .getDirectReports().get(0);
+        assertEquals(level4Employee.getEmployeeId(), filledOutLevel4Employee.getEmployeeId());
+        assertEquals(emptyList(), filledOutLevel4Employee.getDirectReports());
+    }
+
+    @Test
+    public void testGetReportingStructureMaxDepth() {
+        Employee level3Employee = createEmployee("Max Depth Level 3 Employee", emptyList());
+        Employee level2Employee = createEmployee("Max Depth Level 2 Employee",
+                Collections.singletonList(stub(level3Employee)));
+        Employee level1Employee = createEmployee("Max Depth Level 1 Employee",
+                Collections.singletonList(stub(level2Employee)));
+
+        ReportingStructure actualReportingStructure = restTemplate.getForEntity(reportingStructureUrl + "?maxDepth=1",
+                        ReportingStructure.class, level1Employee.getEmployeeId())
+                .getBody();
+
+        assertNotNull(actualReportingStructure);
+        assertEquals(2, actualReportingStructure.getNumberOfReports());
+        Employee filledOutLevel2Employee = actualReportingStructure.getEmployee().getDirectReports().get(0);
+        assertEquals(level2Employee.getFirstName(), filledOutLevel2Employee.getFirstName());
+        assertEquals(Collections.singletonList(stub(level3Employee)), filledOutLevel2Employee.getDirectReports());
+    }
+
+    @Test
+    public void testGetReportingStructureFetchesWideLevelsInChunks() throws NotFoundException {
+        List<Employee> directReports = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            directReports.add(stub(createEmployee(UUID.randomUUID().toString(), emptyList())));
+        }
+        Employee manager = createEmployee(UUID.randomUUID().toString(), directReports);
+
+        Object target = AopTestUtils.getTargetObject(employeeService);
+        Object useOrgGraphIndex = ReflectionTestUtils.getField(target, "useOrgGraphIndex");
+        Object fetchChunkSize = ReflectionTestUtils.getField(target, "fetchChunkSize");
+        ReflectionTestUtils.setField(target, "useOrgGraphIndex", false);
+        ReflectionTestUtils.setField(target, "fetchChunkSize", 4);
+        try {
+            ReportingStructure reportingStructure = employeeService.getReportingStructure(manager.getEmployeeId());
+
+            assertEquals(25, reportingStructure.getNumberOfReports());
+            List<Employee> filledOutReports = reportingStructure.getEmployee().getDirectReports();
+            for (int i = 0; i < directReports.size(); i++) {
+                assertEquals(directReports.get(i).getEmployeeId(), filledOutReports.get(i).getEmployeeId());
+                assertEquals("Doe", filledOutReports.get(i).getLastName());
+            }
+        } finally {
+            ReflectionTestUtils.setField(target, "useOrgGraphIndex", useOrgGraphIndex);
+            ReflectionTestUtils.setField(target, "fetchChunkSize", fetchChunkSize);
+        }
+    }
+
+    @Test
+    public void testStreamReportingStructure() {
+        Employee level3Employee = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee level2Employee = createEmployee(UUID.randomUUID().toString(),
+                Collections.singletonList(stub(level3Employee)));
+        Employee otherLevel2Employee = createEmployee(UUID.randomUUID().toString(), null);
+        Employee level1Employee = createEmployee(UUID.randomUUID().toString(),
+                Arrays.asList(stub(level2Employee), stub(otherLevel2Employee)));
+
+        String streamed = restTemplate.getForEntity(reportingStructureUrl + "?stream=true", String.class,
+                level1Employee.getEmployeeId()).getBody();
+        assertTrue(streamed.endsWith("\"numberOfReports\":3}"));
+
+        Object target = AopTestUtils.getTargetObject(employeeService);
+        Object useOrgGraphIndex = ReflectionTestUtils.getField(target, "useOrgGraphIndex");
+        try {
+            for (boolean indexed : new boolean[]{true, false}) {
+                ReflectionTestUtils.setField(target, "useOrgGraphIndex", indexed);
+                for (String query : new String[]{"", "&maxDepth=0", "&maxDepth=1", "&fields=lastName"}) {
+                    assertEquals(restTemplate.getForEntity(reportingStructureUrl + "?stream=false" + query,
+                            ReportingStructure.class, level1Employee.getEmployeeId()).getBody(),
+                            restTemplate.getForEntity(reportingStructureUrl + "?stream=true" + query,
+                                    ReportingStructure.class, level1Employee.getEmployeeId()).getBody());
+                }
+            }
+        } finally {
+            ReflectionTestUtils.setField(target, "useOrgGraphIndex", useOrgGraphIndex);
+        }
+    }
+
+    @Test
+    public void testStreamReportingStructureNotFound() throws NotFoundException, IOException {
+        String employeeId = UUID.randomUUID().toString();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JsonGenerator generator = new JsonFactory().createGenerator(output);
+        try {
+            employeeService.writeReportingStructure(employeeId, null, null, generator);
+            fail("Expected a NotFoundException");
+        } catch (NotFoundException e) {
+            assertEquals("Invalid employeeId: " + employeeId, e.getMessage());
+        }
+
+        generator.flush();
+        assertEquals(0, output.size());
+    }
+
     @Test
     public void testGetReportingStructureNotFound() throws NotFoundException {
         String employeeId = UUID.randomUUID().toString();
@@ -185,6 +741,79 @@ public class EmployeeServiceImplTest {
         employeeService.getReportingStructure(employee.getEmployeeId());
     }
 
+    @Test
+    public void testFindReportsPagesThroughEveryLevel() {
+        Employee grandchild1 = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee grandchild2 = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee child1 = createEmployee(UUID.randomUUID().toString(), Arrays.asList(stub(grandchild1),
+                stub(grandchild2)));
+        Employee child2 = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(), Arrays.asList(stub(child1), stub(child2)));
+
+        ReportsPage firstPage = restTemplate.getForObject(reportsUrl + "?limit=3", ReportsPage.class,
+                manager.getEmployeeId());
+        assertNotNull(firstPage);
+        assertEquals(Arrays.asList(child1.getEmployeeId(), grandchild1.getEmployeeId(), grandchild2.getEmployeeId()),
+                employeeIds(firstPage.getReports()));
+        assertEquals("Doe", firstPage.getReports().get(0).getLastName());
+        assertNotNull(firstPage.getNextCursor());
+
+        ReportsPage secondPage = restTemplate.getForObject(reportsUrl + "?limit=3&cursor={cursor}",
+                ReportsPage.class, manager.getEmployeeId(), firstPage.getNextCursor());
+        assertNotNull(secondPage);
+        assertEquals(Collections.singletonList(child2.getEmployeeId()), employeeIds(secondPage.getReports()));
+        assertNull(secondPage.getNextCursor());
+
+        // Moving a report under another manager is reflected in the next listing
+        child1.setDirectReports(Collections.singletonList(stub(grandchild1)));
+        restTemplate.put(employeeIdUrl, child1, child1.getEmployeeId());
+        child2.setDirectReports(Collections.singletonList(stub(grandchild2)));
+        restTemplate.put(employeeIdUrl, child2, child2.getEmployeeId());
+
+        ReportsPage movedPage = restTemplate.getForObject(reportsUrl, ReportsPage.class, manager.getEmployeeId());
+        assertNotNull(movedPage);
+        assertEquals(Arrays.asList(child1.getEmployeeId(), grandchild1.getEmployeeId(), child2.getEmployeeId(),
+                grandchild2.getEmployeeId()), employeeIds(movedPage.getReports()));
+    }
+
+    @Test
+    public void testIsReportOf() throws NotFoundException {
+        Employee grandchild = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee child = createEmployee(UUID.randomUUID().toString(), Collections.singletonList(stub(grandchild)));
+        Employee sibling = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(), Arrays.asList(stub(child), stub(sibling)));
+
+        assertEquals(Boolean.TRUE, restTemplate.getForObject(reportsUrl + "/{reportId}", Boolean.class,
+                manager.getEmployeeId(), grandchild.getEmployeeId()));
+        assertTrue(employeeService.isReportOf(child.getEmployeeId(), manager.getEmployeeId()));
+        assertFalse(employeeService.isReportOf(manager.getEmployeeId(), grandchild.getEmployeeId()));
+        assertFalse(employeeService.isReportOf(sibling.getEmployeeId(), child.getEmployeeId()));
+        assertFalse(employeeService.isReportOf(manager.getEmployeeId(), manager.getEmployeeId()));
+    }
+
+    @Test
+    public void testFindReportsInvalidCursor() {
+        Employee report = createEmployee(UUID.randomUUID().toString(), emptyList());
+        Employee manager = createEmployee(UUID.randomUUID().toString(), Collections.singletonList(stub(report)));
+        Employee otherManager = createEmployee(UUID.randomUUID().toString(), emptyList());
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(reportsUrl + "?cursor={cursor}",
+                        String.class, otherManager.getEmployeeId(), report.getEmployeeId())
+                .getStatusCode());
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity(reportsUrl + "?cursor={cursor}", String.class,
+                        manager.getEmployeeId(), report.getEmployeeId())
+                .getStatusCode());
+    }
+
+    private static List<String> employeeIds(List<Employee> employees) {
+        List<String> employeeIds = new ArrayList<>();
+        for (Employee employee : employees) {
+            employeeIds.add(employee.getEmployeeId());
+        }
+
+        return employeeIds;
+    }
+
     /**
      * Generates and saves an employee to the database
      *
@@ -204,4 +833,35 @@ public class EmployeeServiceImplTest {
 
         return employeeRepository.insert(employee);
     }
+
+    private Employee newEmployee(Employee... directReports) {
+        Employee employee = new Employee();
+        employee.setFirstName("Counted");
+        employee.setLastName("Employee");
+        List<Employee> reportStubs = new ArrayList<>();
+        for (Employee directReport : directReports) {
+            reportStubs.add(stub(directReport));
+        }
+        employee.setDirectReports(reportStubs);
+
+        return employee;
+    }
+
+    private Integer storedNumberOfReports(Employee employee) {
+        return employeeRepository.findNumberOfReportsByEmployeeIdIn(Collections.singleton(employee.getEmployeeId()))
+                .get(employee.getEmployeeId());
+    }
+
+    /**
+     * Builds a reference to the given employee that only contains its id, like the seeded direct reports
+     *
+     * @param employee the employee to reference
+     * @return an Employee with only employeeId set
+     */
+    private Employee stub(Employee employee) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employee.getEmployeeId());
+
+        return stub;
+    }
 }
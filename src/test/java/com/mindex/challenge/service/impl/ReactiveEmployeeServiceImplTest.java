@@ -0,0 +1,213 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.NotFoundException;
+import com.mindex.challenge.service.EmployeeService;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeServiceImplTest {
+
+    private static final String LENNON_ID = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+    private static final String STARR_ID = "03aa1462-ffa9-4978-901b-7c001562cf6f";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    private WebTestClient webTestClient;
+
+    @Before
+    public void setup() {
+        webTestClient = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + port)
+                .build();
+    }
+
+    @Test
+    public void testCreateReadUpdate() {
+        Employee testEmployee = new Employee();
+        testEmployee.setFirstName("John");
+        testEmployee.setLastName("Doe");
+        testEmployee.setDepartment("Engineering");
+        testEmployee.setPosition("Developer");
+
+        Employee createdEmployee = webTestClient.post()
+                .uri("/employee")
+                .bodyValue(testEmployee)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(createdEmployee.getEmployeeId());
+        assertEquals("Doe", createdEmployee.getLastName());
+
+        createdEmployee.setPosition("Development Manager");
+        webTestClient.put()
+                .uri("/employee/{id}", createdEmployee.getEmployeeId())
+                .bodyValue(createdEmployee)
+                .exchange()
+                .expectStatus().isOk();
+
+        Employee readEmployee = webTestClient.get()
+                .uri("/employee/{id}", createdEmployee.getEmployeeId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals("Development Manager", readEmployee.getPosition());
+    }
+
+    @Test
+    public void testUpdateKeepsCountsAndCacheInStep() throws NotFoundException {
+        Employee report = create(new Employee());
+        Employee manager = new Employee();
+        manager.setPosition("Manager");
+        manager.setDirectReports(Collections.singletonList(stub(report)));
+        manager = create(manager);
+        assertEquals(Integer.valueOf(1), readStored(manager.getEmployeeId()).getInteger(
+                "numberOfReports"));
+
+        // Cached by the blocking service, the reactive update has to evict it
+        assertEquals("Manager", employeeService.read(manager.getEmployeeId()).getPosition());
+
+        manager.setPosition("Director");
+        manager.setDirectReports(null);
+        webTestClient.put()
+                .uri("/employee/{id}", manager.getEmployeeId())
+                .bodyValue(manager)
+                .exchange()
+                .expectStatus().isOk();
+
+        Document stored = readStored(manager.getEmployeeId());
+        assertFalse(stored.containsKey("directReports"));
+        assertEquals(Integer.valueOf(0), stored.getInteger("numberOfReports"));
+        assertEquals("Director", employeeService.read(manager.getEmployeeId()).getPosition());
+    }
+
+    @Test
+    public void testGetReportingStructureUsesStoredCount() {
+        Employee report = create(new Employee());
+        Employee manager = new Employee();
+        manager.setDirectReports(Collections.singletonList(stub(report)));
+        manager = create(manager);
+        mongoTemplate.updateFirst(query(where("employeeId").is(manager.getEmployeeId())),
+                new Update().set("numberOfReports", 42), mongoTemplate.getCollectionName(Employee.class));
+
+        webTestClient.get()
+                .uri("/employee/{id}/reportingStructure", manager.getEmployeeId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.numberOfReports").isEqualTo(42)
+                .jsonPath("$.employee.directReports[0].employeeId").isEqualTo(report.getEmployeeId());
+    }
+
+    @Test
+    public void testGetReportingStructure() {
+        webTestClient.get()
+                .uri("/employee/{id}/reportingStructure", LENNON_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.numberOfReports").isEqualTo(4)
+                .jsonPath("$.employee.directReports[1].employeeId").isEqualTo(STARR_ID)
+                .jsonPath("$.employee.directReports[1].firstName").isEqualTo("Ringo")
+                .jsonPath("$.employee.directReports[1].directReports[0].position").isEqualTo("Developer II");
+    }
+
+    @Test
+    public void testGetReportingStructureMaxDepth() {
+        webTestClient.get()
+                .uri("/employee/{id}/reportingStructure?maxDepth=1", LENNON_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.numberOfReports").isEqualTo(4)
+                .jsonPath("$.employee.directReports[1].firstName").isEqualTo("Ringo")
+                .jsonPath("$.employee.directReports[1].directReports[0].position").doesNotExist();
+    }
+
+    @Test
+    public void testCreateFindCompensation() {
+        Employee employee = new Employee();
+        employee.setEmployeeId(LENNON_ID);
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employee);
+        compensation.setSalary(new BigDecimal("999999"));
+        compensation.setEffectiveDate(LocalDate.parse("2099-01-01"));
+
+        webTestClient.post()
+                .uri("/compensation")
+                .bodyValue(compensation)
+                .exchange()
+                .expectStatus().isOk();
+
+        Compensation latest = webTestClient.get()
+                .uri("/employee/{employeeId}/compensation", LENNON_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Compensation.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(new BigDecimal("999999"), latest.getSalary());
+        assertEquals(LocalDate.parse("2099-01-01"), latest.getEffectiveDate());
+    }
+
+    private Employee create(Employee employee) {
+        return webTestClient.post()
+                .uri("/employee")
+                .bodyValue(employee)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private Document readStored(String employeeId) {
+        return mongoTemplate.findOne(query(where("employeeId").is(employeeId)), Document.class,
+                mongoTemplate.getCollectionName(Employee.class));
+    }
+
+    private static Employee stub(Employee employee) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employee.getEmployeeId());
+        return stub;
+    }
+}
@@ -0,0 +1,134 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.exceptions.NotFoundException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ReportingStructureTraversalTest {
+
+    private Map<String, Employee> storedEmployees;
+
+    private int loads;
+
+    private ReportingStructureTraversal traversal;
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
+    @Before
+    public void setup() {
+        storedEmployees = new HashMap<>();
+        loads = 0;
+        traversal = new ReportingStructureTraversal(ids -> {
+            loads++;
+            Map<String, Employee> loaded = new HashMap<>();
+            for (String id : ids) {
+                Employee storedEmployee = storedEmployees.get(id);
+                if (storedEmployee == null) {
+                    throw new NotFoundException("Invalid employeeId: " + id);
+                }
+                loaded.put(id, copy(storedEmployee));
+            }
+            return loaded;
+        });
+    }
+
+    @Test
+    public void testFillOutDeepChain() throws NotFoundException {
+        int depth = 10000;
+        for (int i = 0; i < depth; i++) {
+            store("employee" + i, "employee" + (i + 1));
+        }
+        store("employee" + depth);
+
+        Employee root = copy(storedEmployees.get("employee0"));
+        int numberOfReports = traversal.fillOut(root, null, true);
+
+        assertEquals(depth, numberOfReports);
+        assertEquals(depth, loads);
+        assertEquals("employee1", root.getDirectReports().get(0).getEmployeeId());
+        assertEquals("employee2", root.getDirectReports().get(0).getDirectReports().get(0).getEmployeeId());
+    }
+
+    @Test
+    public void testFillOutWithMaxDepth() throws NotFoundException {
+        store("ceo", "vp1", "vp2");
+        store("vp1", "dev1", "dev2");
+        store("vp2", "dev3");
+        store("dev1", "intern1");
+        store("dev2");
+        store("dev3");
+        store("intern1");
+
+        Employee root = copy(storedEmployees.get("ceo"));
+        int numberOfReports = traversal.fillOut(root, 1, true);
+
+        assertEquals(6, numberOfReports);
+        Employee vp1 = root.getDirectReports().get(0);
+        assertEquals("First vp1", vp1.getFirstName());
+        assertEquals("dev1", vp1.getDirectReports().get(0).getEmployeeId());
+        assertNull(vp1.getDirectReports().get(0).getFirstName());
+
+        root = copy(storedEmployees.get("ceo"));
+        assertEquals(5, traversal.fillOut(root, 2, false));
+    }
+
+    @Test
+    public void testFillOutWithCycle() throws NotFoundException {
+        store("ceo", "vp1");
+        store("vp1", "dev1", "dev2");
+        store("dev1", "ceo");
+        store("dev2", "dev1");
+
+        Employee root = copy(storedEmployees.get("ceo"));
+        int numberOfReports = traversal.fillOut(root, null, true);
+
+        assertEquals(3, numberOfReports);
+        Employee dev1 = root.getDirectReports().get(0).getDirectReports().get(0);
+        assertEquals("ceo", dev1.getDirectReports().get(0).getEmployeeId());
+        assertNull(dev1.getDirectReports().get(0).getDirectReports());
+    }
+
+    @Test
+    public void testFillOutReportNotFound() throws NotFoundException {
+        store("ceo", "missing");
+        exceptionRule.expect(NotFoundException.class);
+        exceptionRule.expectMessage("Invalid employeeId: missing");
+
+        traversal.fillOut(copy(storedEmployees.get("ceo")), null, true);
+    }
+
+    private void store(String employeeId, String... directReportIds) {
+        List<Employee> directReports = new ArrayList<>();
+        for (String directReportId : directReportIds) {
+            Employee directReport = new Employee();
+            directReport.setEmployeeId(directReportId);
+            directReports.add(directReport);
+        }
+
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        employee.setFirstName("First " + employeeId);
+        employee.setDirectReports(directReportIds.length == 0 ? Collections.emptyList() : directReports);
+        storedEmployees.put(employeeId, employee);
+    }
+
+    private static Employee copy(Employee employee) {
+        Employee copy = new Employee(employee);
+        copy.setDirectReports(new ArrayList<>(employee.getDirectReports()));
+
+        return copy;
+    }
+}